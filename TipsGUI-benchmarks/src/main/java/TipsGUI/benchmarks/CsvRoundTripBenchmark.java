@@ -0,0 +1,64 @@
+package TipsGUI.benchmarks;
+
+import TipsGUI.CsvExporter;
+import TipsGUI.CsvImporter;
+import TipsGUI.EmployeeStore;
+import TipsGUI.ParallelCsvImporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exporting a roster to a CSV file and importing it again, through both the sequential and the parallel importer.
+ * Files are written to the temporary directory, so the results include the file system and its cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvRoundTripBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int rows;
+
+    private EmployeeStore store;
+    private Path input;
+    private Path output;
+
+    @Setup
+    public void setUp() throws IOException {
+        store = Rosters.roster(rows);
+        input = Files.createTempFile("roster-" + rows + "-", ".csv");
+        output = Files.createTempFile("export-" + rows + "-", ".csv");
+        CsvExporter.write(store, input, () -> false, percent -> { });
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        return CsvExporter.write(store, output, () -> false, percent -> { });
+    }
+
+    @Benchmark
+    public EmployeeStore importSequential() throws IOException {
+        EmployeeStore imported = new EmployeeStore();
+        new CsvImporter(input).importTo(imported::addRows, () -> false, percent -> { });
+        return imported;
+    }
+
+    @Benchmark
+    public EmployeeStore importParallel() throws IOException {
+        EmployeeStore imported = new EmployeeStore();
+        new ParallelCsvImporter(input).importTo(imported::addRows, () -> false, percent -> { });
+        return imported;
+    }
+}
@@ -0,0 +1,54 @@
+package TipsGUI.benchmarks;
+
+import TipsGUI.DurationFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the text of a month cell into minutes, as done for every cell read from a table or a CSV file.
+ * The legacy benchmark is the regex check and substring parsing the table used before DurationFormat, for comparison.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DurationParsingBenchmark {
+    private static final int DURATIONS = 1024;
+
+    private String[] durations;
+
+    @Setup
+    public void setUp() {
+        durations = Rosters.durations(DURATIONS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DURATIONS)
+    public long parseMinutes() {
+        long total = 0;
+        for (String duration : durations) {
+            total += DurationFormat.parseMinutes(duration, 0, duration.length());
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DURATIONS)
+    public long legacyRegex() {
+        long total = 0;
+        for (String duration : durations) {
+            if (duration.matches("\\d+[hH]\\s\\d{0,2}[mM]")) {
+                String valueString = duration.toLowerCase();
+                long hours = Integer.parseInt(valueString.substring(0, valueString.indexOf('h')));
+                long minutes = Integer.parseInt(
+                        valueString.substring(valueString.indexOf('h') + 2, valueString.indexOf('m')));
+                total += Duration.ofHours(hours).plusMinutes(minutes).toMinutes();
+            }
+        }
+        return total;
+    }
+}
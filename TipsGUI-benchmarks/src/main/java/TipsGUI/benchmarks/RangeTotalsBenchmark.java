@@ -0,0 +1,49 @@
+package TipsGUI.benchmarks;
+
+import TipsGUI.EmployeeStore;
+import TipsGUI.TipsCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totalling every employee's minutes over a month range, the first half of calculating the tips.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RangeTotalsBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int rows;
+
+    private EmployeeStore store;
+
+    @Setup
+    public void setUp() {
+        store = Rosters.roster(rows);
+    }
+
+    /**
+     * March to September.
+     */
+    @Benchmark
+    public long[] forward() {
+        return TipsCalculator.totalMinutes(store, 3, 9);
+    }
+
+    /**
+     * October to February, wrapping around the end of the year.
+     */
+    @Benchmark
+    public long[] wrapAround() {
+        return TipsCalculator.totalMinutes(store, 10, 2);
+    }
+
+    @Benchmark
+    public long[] wholeYear() {
+        return TipsCalculator.totalMinutes(store, 1, 12);
+    }
+}
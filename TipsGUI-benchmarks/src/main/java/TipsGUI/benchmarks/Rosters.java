@@ -0,0 +1,60 @@
+package TipsGUI.benchmarks;
+
+import TipsGUI.DurationFormat;
+import TipsGUI.EmployeeStore;
+import TipsGUI.RowBatch;
+
+import java.util.Random;
+
+/**
+ * Generates rosters for the benchmarks, the same every run for a given size.
+ */
+final class Rosters {
+    private static final long SEED = 20240101L;
+    private static final int BATCH_SIZE = 4096;
+
+    private Rosters() {
+    }
+
+    /**
+     * Generate a roster of employees working up to 200 hours a month, with about one month in fifty left empty.
+     * @param rows The number of employees
+     * @return A new store holding the roster
+     */
+    static EmployeeStore roster(int rows) {
+        Random random = new Random(SEED);
+        EmployeeStore store = new EmployeeStore();
+        store.ensureCapacity(rows);
+
+        RowBatch batch = new RowBatch(BATCH_SIZE);
+        for (int row = 0; row < rows; row++) {
+            int index = batch.add("Employee \"" + row + "\", Bar", 0);
+            for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+                int minutes = random.nextInt(50) == 0 ? EmployeeStore.INVALID_MINUTES : random.nextInt(200 * 60);
+                batch.setMinutes(index, month, minutes);
+            }
+            if (batch.isFull()) {
+                store.addRows(batch);
+                batch = new RowBatch(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            store.addRows(batch);
+        }
+        return store;
+    }
+
+    /**
+     * Generate durations as they appear in the table, e.g. "37h 05m".
+     * @param count The number of durations
+     * @return The durations as text
+     */
+    static String[] durations(int count) {
+        Random random = new Random(SEED);
+        String[] durations = new String[count];
+        for (int i = 0; i < count; i++) {
+            durations[i] = DurationFormat.toText(random.nextInt(200 * 60));
+        }
+        return durations;
+    }
+}
@@ -0,0 +1,44 @@
+package TipsGUI.benchmarks;
+
+import TipsGUI.TipAllocator;
+import TipsGUI.TipsCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting the tips in whole pennies between employees, the second half of calculating the tips.
+ * The allocator and share array are reused, as they are by the window between calculations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TipAllocationBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int rows;
+
+    /**
+     * Tips available in pennies; the larger pool leaves more pennies to hand out by remainder.
+     */
+    @Param({"123456", "98765432101"})
+    public long tipsPennies;
+
+    private long[] totals;
+    private long[] shares;
+    private final TipAllocator allocator = new TipAllocator();
+
+    @Setup
+    public void setUp() {
+        totals = TipsCalculator.totalMinutes(Rosters.roster(rows), 1, 12);
+        shares = new long[rows];
+    }
+
+    @Benchmark
+    public long[] allocate() {
+        allocator.allocate(totals, rows, tipsPennies, shares);
+        return shares;
+    }
+}
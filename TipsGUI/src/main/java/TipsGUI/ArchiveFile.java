@@ -0,0 +1,784 @@
+package TipsGUI;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A compressed archive of the employee table, for keeping every period's export for audits without filling the drive,
+ * saved alongside CSV export as a ".tipz" file.
+ * The table is cut into blocks of BLOCK_ROWS employees, and each block's details and each year of its time are
+ * gzip-compressed on their own, for speed rather than size. Blocks are compressed in parallel when written and inflated in parallel when read,
+ * and reading one employee, or the time between two days, only inflates the blocks holding it.
+ *
+ * The file is little-endian and laid out as:
+ * <pre>
+ * header   int magic "TIPZ", int version, int rowCount, int year, long nextId, int blockRows, int blockCount,
+ *          long indexOffset
+ * blocks   blockCount gzip members, one after another
+ * index    blockCount of byte kind, int firstRow, int rowCount, int year, long minId, long maxId,
+ *          long offset, int compressedLength, int length
+ * </pre>
+ * A ROWS block holds its employees a column at a time, so like values are together where they compress best:
+ * rowCount of long id, of long tipShare, of int minutes for each month of the year shown, of byte hasSeries,
+ * then of int nameLength and the name in UTF-8. Its index entry gives the lowest and highest id in it.
+ * A TIME block holds one year of its employees' time: for each employee with time that year, int row, int entryCount,
+ * then entryCount of byte month, byte day and int minutes, with a day of 0 for a month known only as a whole.
+ * Every employee's time is in the TIME blocks, even that of employees whose time is all in the month columns,
+ * so totals for any dates never need the ROWS blocks.
+ */
+public class ArchiveFile {
+    public static final String EXTENSION = "tipz";
+    public static final int VERSION = 1;
+    public static final int BLOCK_ROWS = 4096;
+
+    private static final int MAGIC = 0x5449505A;
+    private static final int HEADER_SIZE = 40;
+    private static final int INDEX_ENTRY_SIZE = 1 + 3 * Integer.BYTES + 3 * Long.BYTES + 2 * Integer.BYTES;
+    private static final byte ROWS = 1;
+    private static final byte TIME = 2;
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private final ForkJoinPool pool;
+    private final int rowCount;
+    private final int year;
+    private final long nextId;
+    private final List<Block> blocks;
+
+    /**
+     * Where one block is, and what it holds, as read from the index.
+     */
+    private static final class Block {
+        final byte kind;
+        final int firstRow;
+        final int rowCount;
+        /** The year of a TIME block's time. */
+        final int year;
+        /** The lowest and highest id in a ROWS block. */
+        final long minId;
+        final long maxId;
+        final long offset;
+        final int compressedLength;
+        final int length;
+
+        Block(byte kind, int firstRow, int rowCount, int year, long minId, long maxId,
+              long offset, int compressedLength, int length) {
+            this.kind = kind;
+            this.firstRow = firstRow;
+            this.rowCount = rowCount;
+            this.year = year;
+            this.minId = minId;
+            this.maxId = maxId;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A block compressed and ready to write, before its offset is known.
+     */
+    private static final class CompressedBlock {
+        final byte kind;
+        final int firstRow;
+        final int rowCount;
+        final int year;
+        final long minId;
+        final long maxId;
+        final int length;
+        final byte[] data;
+
+        CompressedBlock(byte kind, int firstRow, int rowCount, int year, long minId, long maxId, ByteBuffer raw) {
+            this.kind = kind;
+            this.firstRow = firstRow;
+            this.rowCount = rowCount;
+            this.year = year;
+            this.minId = minId;
+            this.maxId = maxId;
+            this.length = raw.position();
+            this.data = gzip(raw);
+        }
+    }
+
+    /**
+     * Receives an inflated block.
+     */
+    private interface BlockConsumer {
+        void accept(Block block, ByteBuffer data);
+    }
+
+    private ArchiveFile(Path path, ForkJoinPool pool, int rowCount, int year, long nextId, List<Block> blocks) {
+        this.path = path;
+        this.pool = pool;
+        this.rowCount = rowCount;
+        this.year = year;
+        this.nextId = nextId;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Read an archive's header and index. No blocks are read until they're needed.
+     * @param path The archive to open
+     * @return The archive
+     * @throws IOException If the file can't be read, isn't an archive, or is from a newer version
+     */
+    public static ArchiveFile open(Path path) throws IOException {
+        return open(path, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param path The archive to open
+     * @param pool The pool to inflate blocks on
+     * @return The archive
+     * @throws IOException If the file can't be read, isn't an archive, or is from a newer version
+     */
+    public static ArchiveFile open(Path path, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not an archive file");
+            }
+            ByteBuffer header = read(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not an archive file");
+            }
+            int version = header.getInt();
+            if (version > VERSION) {
+                throw new IOException("The archive is from a newer version (" + version + ")");
+            }
+            int rowCount = header.getInt();
+            int year = header.getInt();
+            long nextId = header.getLong();
+            int blockRows = header.getInt();
+            int blockCount = header.getInt();
+            long indexOffset = header.getLong();
+            if (rowCount < 0 || blockRows != BLOCK_ROWS || blockCount < 0 || indexOffset < HEADER_SIZE
+                    || indexOffset + (long) blockCount * INDEX_ENTRY_SIZE > size) {
+                throw new IOException("The archive file is damaged");
+            }
+
+            ByteBuffer index = read(channel, indexOffset, blockCount * INDEX_ENTRY_SIZE);
+            List<Block> blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                Block block = new Block(index.get(), index.getInt(), index.getInt(), index.getInt(),
+                        index.getLong(), index.getLong(), index.getLong(), index.getInt(), index.getInt());
+                if (block.offset < HEADER_SIZE || block.compressedLength < 0 || block.length < 0
+                        || block.offset + block.compressedLength > indexOffset
+                        || block.firstRow < 0 || block.rowCount < 0 || block.firstRow + block.rowCount > rowCount) {
+                    throw new IOException("The archive file is damaged");
+                }
+                blocks.add(block);
+            }
+            return new ArchiveFile(path, pool, rowCount, year, nextId, blocks);
+        }
+    }
+
+    /**
+     * Save a store as an archive, compressing its blocks on the common fork-join pool.
+     * @param store The employees to save; must not change while writing
+     * @param path The full path of the file to write
+     * @param cancelled Checked between blocks; the file is deleted if it returns true
+     * @param progress Receives the percentage of blocks written so far
+     * @return The number of bytes written
+     * @throws IOException If the file can't be written
+     */
+    public static long write(EmployeeStore store, Path path, BooleanSupplier cancelled, IntConsumer progress) throws IOException {
+        return write(store, path, cancelled, progress, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Save a store as an archive. Each block of rows is encoded and compressed on the pool, a few blocks ahead
+     * of the one being written, and written in row order.
+     * @param store The employees to save; must not change while writing, as it is read from the pool's threads
+     * @param path The full path of the file to write
+     * @param cancelled Checked between blocks; the file is deleted if it returns true
+     * @param progress Receives the percentage of blocks written so far
+     * @param pool The pool to compress blocks on
+     * @return The number of bytes written
+     * @throws IOException If the file can't be written
+     */
+    public static long write(EmployeeStore store, Path path, BooleanSupplier cancelled, IntConsumer progress,
+                             ForkJoinPool pool) throws IOException {
+        int rowCount = store.getRowCount();
+        int rowBlocks = (rowCount + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        int window = Math.max(2, pool.getParallelism() * 2);
+        List<Block> index = new ArrayList<>();
+        Deque<CompletableFuture<List<CompressedBlock>>> pending = new ArrayDeque<>();
+        boolean stopped = false;
+        long written;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The header is written last, once the index's offset is known
+            long offset = HEADER_SIZE;
+            int submitted = 0;
+            for (int done = 0; done < rowBlocks && !stopped; done++) {
+                while (submitted < rowBlocks && submitted < done + window) {
+                    int firstRow = submitted * BLOCK_ROWS;
+                    int blockRowCount = Math.min(BLOCK_ROWS, rowCount - firstRow);
+                    pending.addLast(CompletableFuture.supplyAsync(() -> compress(store, firstRow, blockRowCount), pool));
+                    submitted++;
+                }
+                for (CompressedBlock compressed : join(pending.removeFirst())) {
+                    write(channel, ByteBuffer.wrap(compressed.data), offset);
+                    index.add(new Block(compressed.kind, compressed.firstRow, compressed.rowCount, compressed.year,
+                            compressed.minId, compressed.maxId, offset, compressed.data.length, compressed.length));
+                    offset += compressed.data.length;
+                }
+                stopped = cancelled.getAsBoolean();
+                progress.accept((done + 1) * 100 / rowBlocks);
+            }
+            for (CompletableFuture<List<CompressedBlock>> task : pending) {
+                task.cancel(false);
+            }
+
+            ByteBuffer entries = ByteBuffer.allocate(index.size() * INDEX_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (Block block : index) {
+                entries.put(block.kind).putInt(block.firstRow).putInt(block.rowCount).putInt(block.year)
+                        .putLong(block.minId).putLong(block.maxId)
+                        .putLong(block.offset).putInt(block.compressedLength).putInt(block.length);
+            }
+            entries.flip();
+            write(channel, entries, offset);
+            written = offset + entries.limit();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(rowCount).putInt(store.getYear()).putLong(store.getNextId())
+                    .putInt(BLOCK_ROWS).putInt(index.size()).putLong(offset);
+            header.flip();
+            write(channel, header, 0);
+        }
+        if (stopped) {
+            Files.deleteIfExists(path);
+        }
+        return written;
+    }
+
+    /**
+     * Encode and compress one block of rows: their details, and their time a year at a time.
+     */
+    private static List<CompressedBlock> compress(EmployeeStore store, int firstRow, int blockRowCount) {
+        int shownYear = store.getYear();
+        ByteBuffer rows = ByteBuffer.allocate(blockRowCount * (2 * Long.BYTES + EmployeeStore.MONTHS * Integer.BYTES
+                + 1 + Integer.BYTES + 16)).order(ByteOrder.LITTLE_ENDIAN);
+        TimeWriter time = new TimeWriter();
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        int lastRow = firstRow + blockRowCount;
+
+        for (int row = firstRow; row < lastRow; row++) {
+            long id = store.getId(row);
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+            rows.putLong(id);
+        }
+        for (int row = firstRow; row < lastRow; row++) {
+            rows.putLong(store.getTipShare(row));
+        }
+        for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+            for (int row = firstRow; row < lastRow; row++) {
+                rows.putInt(store.getMinutes(row, month));
+            }
+        }
+        for (int row = firstRow; row < lastRow; row++) {
+            TimeSeries series = store.getSeries(row);
+            boolean hasSeries = series != null && !series.isEmpty();
+            rows.put((byte) (hasSeries ? 1 : 0));
+
+            time.startRow(row);
+            if (hasSeries) {
+                series.forEach(time);
+            } else {
+                // The month columns are all the employee's time, as whole months of the year shown
+                for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+                    int minutes = store.getMinutes(row, month);
+                    if (minutes > 0) {
+                        time.accept(shownYear, month, 0, minutes);
+                    }
+                }
+            }
+            time.finishRow();
+        }
+        for (int row = firstRow; row < lastRow; row++) {
+            String name = store.getName(row);
+            byte[] encodedName = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+            rows = ensureRemaining(rows, Integer.BYTES + encodedName.length);
+            rows.putInt(encodedName.length).put(encodedName);
+        }
+
+        List<CompressedBlock> compressed = new ArrayList<>(1 + time.years.size());
+        compressed.add(new CompressedBlock(ROWS, firstRow, blockRowCount, 0, minId, maxId, rows));
+        for (Map.Entry<Integer, ByteBuffer> entry : time.years.entrySet()) {
+            compressed.add(new CompressedBlock(TIME, firstRow, blockRowCount, entry.getKey(), 0, 0, entry.getValue()));
+        }
+        return compressed;
+    }
+
+    /**
+     * Sorts the entries of a block's time series into a buffer for each year, each employee's under their row.
+     */
+    private static final class TimeWriter implements TimeSeries.EntryConsumer {
+        final Map<Integer, ByteBuffer> years = new TreeMap<>();
+        private int row;
+        private int currentYear;
+        private ByteBuffer current;
+        private int countPosition;
+        private int count;
+
+        void startRow(int row) {
+            this.row = row;
+            current = null;
+        }
+
+        @Override
+        public void accept(int year, int month, int day, int minutes) {
+            boolean newRow = current == null || year != currentYear;
+            if (newRow) {
+                finishRow();
+                currentYear = year;
+                current = years.computeIfAbsent(year, key -> ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN));
+            }
+            // Room for the entry, and the row and entry count before it if it's the row's first this year
+            current = ensureRemaining(current, (newRow ? 2 * Integer.BYTES : 0) + 2 + Integer.BYTES);
+            years.put(year, current);
+            if (newRow) {
+                current.putInt(row);
+                countPosition = current.position();
+                current.putInt(0);
+                count = 0;
+            }
+            current.put((byte) month).put((byte) day).putInt(minutes);
+            count++;
+        }
+
+        /**
+         * Fill in the number of entries the row has in the year being written.
+         */
+        void finishRow() {
+            if (current != null) {
+                current.putInt(countPosition, count);
+                current = null;
+            }
+        }
+    }
+
+    private static ByteBuffer ensureRemaining(ByteBuffer buffer, int needed) {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    private static byte[] gzip(ByteBuffer raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.position() / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, GZIP_BUFFER_SIZE) {
+            {
+                // The default level takes several times longer for a few percent less
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        }) {
+            gzip.write(raw.array(), 0, raw.position());
+        } catch (IOException e) {
+            // Nothing is written anywhere but memory
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static <T> T join(CompletableFuture<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("The archive file is damaged");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Read and inflate one block. May be called from any thread.
+     */
+    private static ByteBuffer inflate(FileChannel channel, Block block) throws IOException {
+        ByteBuffer compressed = read(channel, block.offset, block.compressedLength);
+        byte[] data = new byte[block.length];
+        try (GZIPInputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(compressed.array(), 0, block.compressedLength), GZIP_BUFFER_SIZE)) {
+            for (int read = 0; read < data.length; ) {
+                int count = in.read(data, read, data.length - read);
+                if (count < 0) {
+                    throw new IOException("The archive file is damaged");
+                }
+                read += count;
+            }
+        }
+        Metrics.count("archive.blocksInflated");
+        return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Inflate blocks on the pool, a few ahead of the one being handed on, and hand each on in the order given.
+     * @param blocks The blocks to read
+     * @param cancelled Checked between blocks; no more are handed on once it returns true
+     * @param consumer Receives each block, on the calling thread
+     * @return True if every block was handed on
+     */
+    private boolean inflateInOrder(List<Block> blocks, BooleanSupplier cancelled, BlockConsumer consumer) throws IOException {
+        int window = Math.max(2, pool.getParallelism() * 2);
+        Deque<CompletableFuture<ByteBuffer>> pending = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int submitted = 0;
+            for (int done = 0; done < blocks.size(); done++) {
+                if (cancelled.getAsBoolean()) {
+                    for (CompletableFuture<ByteBuffer> task : pending) {
+                        task.cancel(false);
+                    }
+                    // Wait for any block still being read, as the channel is about to be closed
+                    for (CompletableFuture<ByteBuffer> task : pending) {
+                        try {
+                            task.join();
+                        } catch (RuntimeException e) {
+                            // Cancelled or failed; either way it's no longer needed
+                        }
+                    }
+                    return false;
+                }
+                while (submitted < blocks.size() && submitted < done + window) {
+                    Block block = blocks.get(submitted++);
+                    pending.addLast(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return inflate(channel, block);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, pool));
+                }
+                consumer.accept(blocks.get(done), join(pending.removeFirst()));
+            }
+            return true;
+        }
+    }
+
+    private List<Block> blocksOf(byte kind) {
+        List<Block> found = new ArrayList<>();
+        for (Block block : blocks) {
+            if (block.kind == kind) {
+                found.add(block);
+            }
+        }
+        return found;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return The year the month columns were showing when the archive was written
+     */
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     * Read every employee's details and the months of the year shown, handing them on in batches
+     * in the same way as the CSV importers. Only the ROWS blocks are inflated.
+     * @param sink Receives the batches, on the calling thread
+     * @param cancelled Checked between blocks; the import stops early once it returns true
+     * @param progress Receives the percentage of rows handed on so far
+     * @return The number of rows imported
+     * @throws IOException If the file can't be read or is damaged
+     */
+    public long importTo(Consumer<RowBatch> sink, BooleanSupplier cancelled, IntConsumer progress) throws IOException {
+        long[] imported = new long[1];
+        inflateInOrder(blocksOf(ROWS), cancelled, (block, data) -> {
+            Rows rows = new Rows(block.rowCount, data);
+            RowBatch batch = new RowBatch(block.rowCount);
+            for (int i = 0; i < block.rowCount; i++) {
+                int row = batch.add(rows.names[i], rows.tipShares[i]);
+                batch.setId(row, rows.ids[i]);
+                for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+                    batch.setMinutes(row, month, rows.minutes[month - 1][i]);
+                }
+            }
+            sink.accept(batch);
+            imported[0] += block.rowCount;
+            progress.accept((int) (imported[0] * 100 / rowCount));
+        });
+        return imported[0];
+    }
+
+    /**
+     * Restore the archived table into a store, keeping every employee's id, days and other years.
+     * The store is switched to show the year the archive was showing.
+     * @param store The store to add the employees to, normally empty
+     * @throws IOException If the file can't be read or is damaged
+     */
+    public void loadInto(EmployeeStore store) throws IOException {
+        loadInto(store, () -> false, percent -> { });
+    }
+
+    /**
+     * Restore the archived table into a store, as loadInto does, telling a progress bar how far it has got.
+     * @param store The store to add the employees to, normally empty
+     * @param cancelled Checked between blocks; once it returns true the load stops, leaving the store part filled
+     * @param progress Receives the percentage of blocks read so far
+     * @return False if the load was cancelled
+     * @throws IOException If the file can't be read or is damaged
+     */
+    public boolean loadInto(EmployeeStore store, BooleanSupplier cancelled, IntConsumer progress) throws IOException {
+        store.setYear(year);
+        int firstRow = store.getRowCount();
+        store.ensureCapacity(firstRow + rowCount);
+        List<Block> rowBlocks = blocksOf(ROWS);
+        List<Block> timeBlocks = blocksOf(TIME);
+        int blockCount = Math.max(rowBlocks.size() + timeBlocks.size(), 1);
+        int[] done = new int[1];
+        boolean[] hasSeries = new boolean[rowCount];
+        boolean finished = inflateInOrder(rowBlocks, cancelled, (block, data) -> {
+            Rows rows = new Rows(block.rowCount, data);
+            for (int i = 0; i < block.rowCount; i++) {
+                hasSeries[block.firstRow + i] = rows.hasSeries[i];
+                store.addRow(rows.ids[i], rows.names[i], rows.getMonthlyMinutes(i), rows.tipShares[i]);
+            }
+            progress.accept(++done[0] * 100 / blockCount);
+        });
+        store.reserveIds(nextId);
+        if (!finished) {
+            return false;
+        }
+
+        TimeSeries[] series = new TimeSeries[rowCount];
+        finished = inflateInOrder(timeBlocks, cancelled, (block, data) -> {
+            readTime(block, data, hasSeries, series);
+            progress.accept(++done[0] * 100 / blockCount);
+        });
+        for (int row = 0; row < rowCount; row++) {
+            if (series[row] != null) {
+                store.setSeries(firstRow + row, series[row]);
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Read one employee, with all their days and years, inflating only the blocks of their rows.
+     * @param id The employee's id
+     * @return A store holding just the employee, showing the year the archive was showing, or null if they aren't in it
+     * @throws IOException If the file can't be read or is damaged
+     */
+    public EmployeeStore readEmployee(long id) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (Block block : blocksOf(ROWS)) {
+                if (id < block.minId || id > block.maxId) {
+                    continue;
+                }
+                Rows rows = new Rows(block.rowCount, inflate(channel, block));
+                for (int i = 0; i < block.rowCount; i++) {
+                    if (rows.ids[i] != id) {
+                        continue;
+                    }
+
+                    EmployeeStore employee = new EmployeeStore(1);
+                    employee.setYear(year);
+                    employee.addRow(id, rows.names[i], rows.getMonthlyMinutes(i), rows.tipShares[i]);
+                    if (rows.hasSeries[i]) {
+                        employee.setSeries(0, readSeries(channel, block.firstRow, block.firstRow + i));
+                    }
+                    return employee;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read one employee's series from the TIME blocks of their rows.
+     */
+    private TimeSeries readSeries(FileChannel channel, int blockFirstRow, int row) throws IOException {
+        TimeSeries series = new TimeSeries();
+        for (Block block : blocks) {
+            if (block.kind != TIME || block.firstRow != blockFirstRow) {
+                continue;
+            }
+            ByteBuffer data = inflate(channel, block);
+            while (data.hasRemaining()) {
+                int entryRow = data.getInt();
+                int entryCount = data.getInt();
+                if (entryRow != row) {
+                    data.position(data.position() + entryCount * (2 + Integer.BYTES));
+                    continue;
+                }
+                for (int entry = 0; entry < entryCount; entry++) {
+                    addEntry(series, block.year, data.get(), data.get(), data.getInt());
+                }
+                break;
+            }
+        }
+        return series;
+    }
+
+    /**
+     * Total every employee's minutes between two days, in the same way as EmployeeStore.getMinutesBetween,
+     * inflating only the TIME blocks of the years in the range.
+     * @param from The first day, inclusive
+     * @param to The last day, inclusive
+     * @return The minutes worked by each employee, indexed by row
+     * @throws IOException If the file can't be read or is damaged
+     */
+    public long[] getMinutesBetween(LocalDate from, LocalDate to) throws IOException {
+        long[] totals = new long[rowCount];
+        List<Block> inRange = new ArrayList<>();
+        for (Block block : blocksOf(TIME)) {
+            if (block.year >= from.getYear() && block.year <= to.getYear()) {
+                inRange.add(block);
+            }
+        }
+        // A month known only as a whole counts on its first day
+        int first = dayNumber(from.getYear(), from.getMonthValue(), from.getDayOfMonth());
+        int last = dayNumber(to.getYear(), to.getMonthValue(), to.getDayOfMonth());
+        inflateInOrder(inRange, () -> false, (block, data) -> {
+            while (data.hasRemaining()) {
+                int row = data.getInt();
+                int entryCount = data.getInt();
+                long total = 0;
+                for (int entry = 0; entry < entryCount; entry++) {
+                    int month = data.get();
+                    int day = data.get();
+                    int minutes = data.getInt();
+                    int date = dayNumber(block.year, month, Math.max(day, 1));
+                    if (date >= first && date <= last) {
+                        total += minutes;
+                    }
+                }
+                totals[row] += total;
+            }
+        });
+        return totals;
+    }
+
+    /**
+     * @return A number for a day that sorts in date order
+     */
+    private static int dayNumber(int year, int month, int day) {
+        return (year * 16 + month) * 32 + day;
+    }
+
+    /**
+     * Add a TIME block's entries to the series of the employees that have one.
+     */
+    private static void readTime(Block block, ByteBuffer data, boolean[] hasSeries, TimeSeries[] series) {
+        while (data.hasRemaining()) {
+            int row = data.getInt();
+            int entryCount = data.getInt();
+            if (!hasSeries[row]) {
+                // Time that is all in the month columns
+                data.position(data.position() + entryCount * (2 + Integer.BYTES));
+                continue;
+            }
+            if (series[row] == null) {
+                series[row] = new TimeSeries();
+            }
+            for (int entry = 0; entry < entryCount; entry++) {
+                addEntry(series[row], block.year, data.get(), data.get(), data.getInt());
+            }
+        }
+    }
+
+    private static void addEntry(TimeSeries series, int year, int month, int day, int minutes) {
+        if (day == 0) {
+            series.setMonth(year, month, minutes);
+        } else {
+            series.setDay(LocalDate.of(year, month, day), minutes);
+        }
+    }
+
+    /**
+     * The columns of an inflated ROWS block.
+     */
+    private static final class Rows {
+        final long[] ids;
+        final long[] tipShares;
+        final int[][] minutes = new int[EmployeeStore.MONTHS][];
+        final boolean[] hasSeries;
+        final String[] names;
+
+        Rows(int rowCount, ByteBuffer data) {
+            ids = new long[rowCount];
+            data.asLongBuffer().get(ids);
+            data.position(data.position() + rowCount * Long.BYTES);
+            tipShares = new long[rowCount];
+            data.asLongBuffer().get(tipShares);
+            data.position(data.position() + rowCount * Long.BYTES);
+            for (int month = 0; month < EmployeeStore.MONTHS; month++) {
+                minutes[month] = new int[rowCount];
+                data.asIntBuffer().get(minutes[month]);
+                data.position(data.position() + rowCount * Integer.BYTES);
+            }
+            hasSeries = new boolean[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                hasSeries[i] = data.get() != 0;
+            }
+            names = new String[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                int length = data.getInt();
+                names[i] = new String(data.array(), data.position(), length, StandardCharsets.UTF_8);
+                data.position(data.position() + length);
+            }
+        }
+
+        int[] getMonthlyMinutes(int index) {
+            int[] monthlyMinutes = new int[EmployeeStore.MONTHS];
+            for (int month = 0; month < EmployeeStore.MONTHS; month++) {
+                monthlyMinutes[month] = minutes[month][index];
+            }
+            return monthlyMinutes;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package TipsGUI;
+
+import javax.swing.*;
+import java.awt.Component;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+
+/**
+ * Keeps the table saved between runs without the user exporting it.
+ * The table is kept as a snapshot plus a journal of every change since; on startup the snapshot is loaded and the
+ * journal replayed over it. Once the journal grows past COMPACT_THRESHOLD, the table is written out as a new
+ * snapshot in the background and the journal entries it includes are dropped.
+ */
+public class AutoSave {
+    public static final long COMPACT_THRESHOLD = 16 << 20;
+    private static final int CHECK_INTERVAL_MILLIS = 30_000;
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final Component parent;
+    private EditJournal journal;
+    private boolean compacting;
+    /** Whether the user has been told compaction is failing, so a retry that fails again isn't shown again. */
+    private boolean compactionFailureShown;
+
+    /**
+     * @param directory The directory to keep the snapshot and journal in
+     * @param parent The component to show errors over
+     */
+    public AutoSave(Path directory, Component parent) {
+        this.snapshotPath = directory.resolve("table." + SnapshotFile.EXTENSION);
+        this.journalPath = directory.resolve("table.journal");
+        this.parent = parent;
+    }
+
+    /**
+     * @return The directory the table is saved in by default, in the user's home directory
+     */
+    public static Path defaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".tipsgui");
+    }
+
+    /**
+     * Restore the table as it was when last changed, and open the journal for further changes.
+     * @return The restored employees
+     * @throws IOException If the snapshot or journal can't be read
+     */
+    public EmployeeStore restore() throws IOException {
+        Files.createDirectories(snapshotPath.getParent());
+        EmployeeStore store = new EmployeeStore();
+        long journalSequence = 0;
+        if (Files.exists(snapshotPath)) {
+            SnapshotFile snapshot = SnapshotFile.open(snapshotPath);
+            snapshot.loadInto(store);
+            journalSequence = snapshot.getJournalSequence();
+        }
+        journal = EditJournal.open(journalPath, store, journalSequence, this::failed);
+        return store;
+    }
+
+    /**
+     * Start recording every change to a table restored by restore, compacting the journal as it grows.
+     * Pending changes are written out when the application exits.
+     * @param model The table over the restored store
+     */
+    public void start(EmployeeTableModel model) {
+        model.getLedger().setJournal(journal);
+        new Timer(CHECK_INTERVAL_MILLIS, e -> {
+            if (journal.getFileSize() > COMPACT_THRESHOLD) {
+                compact(model);
+            }
+        }).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "Journal shutdown"));
+    }
+
+    /**
+     * Write the table out as a new snapshot in the background, then drop the journal entries it includes.
+     * Must be called on the event dispatch thread.
+     * @param model The table being recorded
+     */
+    public void compact(EmployeeTableModel model) {
+        if (compacting) {
+            return;
+        }
+        compacting = true;
+        // Taken along with the journal position, so the snapshot holds exactly the changes up to it
+        Ledger.Snapshot snapshot = model.getLedger().snapshot();
+        EmployeeStore store = snapshot.getStore();
+        long journalSequence = snapshot.getJournalSequence();
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                Path temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+                SnapshotFile.write(store, journalSequence, temporary, () -> false, percent -> { });
+                Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                journal.discardThrough(journalSequence);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                compacting = false;
+                try {
+                    get();
+                    compactionFailureShown = false;
+                } catch (InterruptedException | ExecutionException e) {
+                    // The journal still holds every change, so nothing is lost; compaction is tried again later
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    Metrics.LOG.log(Level.WARNING, "Could not compact the journal", cause);
+                    if (!compactionFailureShown) {
+                        compactionFailureShown = true;
+                        JOptionPane.showMessageDialog(
+                                parent,
+                                "The saved table could not be compacted: " + cause.getMessage()
+                                        + "\nChanges are still being saved, but the journal will keep growing until it can be.",
+                                "File error",
+                                JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }
+        }.execute();
+    }
+
+    private void failed(IOException e) {
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(
+                parent,
+                "Changes can no longer be saved automatically: " + e.getMessage() + "\nExport the table to keep them.",
+                "File error",
+                JOptionPane.ERROR_MESSAGE));
+    }
+}
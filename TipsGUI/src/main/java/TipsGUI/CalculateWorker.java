@@ -0,0 +1,85 @@
+package TipsGUI;
+
+import javax.swing.*;
+import java.awt.Component;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Splits the tips in the background. Each employee's total minutes are added up from a snapshot of the ledger
+ * taken when the worker is created, and the shares are set in the table with a single event when done.
+ * If the table was changed in the meantime the shares are not set, and the worker's retry is run instead.
+ */
+public class CalculateWorker extends SwingWorker<long[], Void> {
+    private final EmployeeTableModel model;
+    private final Ledger.Snapshot snapshot;
+    private final Function<EmployeeStore, long[]> totalMinutes;
+    private final long tipsPennies;
+    private final String timerName;
+    private final Runnable retry;
+    private final Component parent;
+
+    /**
+     * Must be created on the event dispatch thread, as it snapshots the table's contents.
+     * @param model The table to set the shares in
+     * @param totalMinutes Adds up each employee's minutes, indexed by row, e.g. for a month range
+     * @param tipsPennies The tips available, in pennies
+     * @param timerName The Metrics timer to record how long the calculation took in
+     * @param retry Run on the event dispatch thread if the table changed before the shares could be set
+     * @param parent The component to show errors over
+     */
+    public CalculateWorker(EmployeeTableModel model, Function<EmployeeStore, long[]> totalMinutes, long tipsPennies,
+                           String timerName, Runnable retry, Component parent) {
+        this.model = model;
+        this.snapshot = model.getLedger().snapshot();
+        this.totalMinutes = totalMinutes;
+        this.tipsPennies = tipsPennies;
+        this.timerName = timerName;
+        this.retry = retry;
+        this.parent = parent;
+    }
+
+    @Override
+    protected long[] doInBackground() {
+        long start = System.nanoTime();
+        long[] totals = totalMinutes.apply(snapshot.getStore());
+        if (isCancelled()) {
+            return null;
+        }
+        setProgress(50);
+        // An allocator of its own, as a cancelled calculation may still be finishing with another
+        long[] shares = TipsCalculator.shares(totals, tipsPennies, new TipAllocator());
+        Metrics.time(timerName, start);
+        return shares;
+    }
+
+    @Override
+    protected void done() {
+        long[] shares;
+        try {
+            shares = get();
+        } catch (CancellationException e) {
+            return;
+        } catch (InterruptedException | ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            JOptionPane.showMessageDialog(
+                    parent,
+                    "The tips could not be calculated: " + cause,
+                    "Calculation error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (model.getLiveTipShares() != null) {
+            // Live shares were switched on since, and follow the table themselves
+            return;
+        }
+        if (model.getLedger().getChangeCount() != snapshot.getChangeCount()) {
+            Metrics.count("calculate.retries");
+            retry.run();
+            return;
+        }
+        model.getHistory().mark("Calculate tips");
+        model.setTipShares(shares);
+    }
+}
@@ -0,0 +1,107 @@
+package TipsGUI;
+
+import javax.swing.*;
+import javax.swing.border.Border;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.TableCellRenderer;
+import java.awt.*;
+import java.util.Map;
+
+/**
+ * Draws a cell's text from a reused character buffer, so painting a cell creates no objects.
+ * Subclasses write the text straight from the model's numbers, rather than from a cell value made for the purpose;
+ * EmployeeTable skips making the value at all for columns drawn this way.
+ * Colours and borders follow the table, as with the default renderer.
+ */
+public abstract class CharCellRenderer extends JComponent implements TableCellRenderer {
+    private static final Border NO_FOCUS_BORDER = new EmptyBorder(1, 1, 1, 1);
+
+    private final char[] text = new char[64];
+    private int length;
+    private final Insets insets = new Insets(0, 0, 0, 0);
+
+    protected CharCellRenderer() {
+        setOpaque(true);
+    }
+
+    /**
+     * Write a cell's text.
+     * @param cells The table's model
+     * @param row The model row
+     * @param column The model column
+     * @param buffer The buffer to write to, with room for either format's longest text
+     * @return The number of characters written
+     */
+    protected abstract int format(EmployeeCells cells, int row, int column, char[] buffer);
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus,
+                                                   int row, int column) {
+        int modelRow = table.convertRowIndexToModel(row);
+        int modelColumn = table.convertColumnIndexToModel(column);
+        length = format((EmployeeCells) table.getModel(), modelRow, modelColumn, text);
+
+        setFont(table.getFont());
+        if (isSelected) {
+            setForeground(table.getSelectionForeground());
+            setBackground(table.getSelectionBackground());
+        } else {
+            setForeground(table.getForeground());
+            setBackground(table.getBackground());
+        }
+        setBorder(hasFocus ? UIManager.getBorder("Table.focusCellHighlightBorder") : NO_FOCUS_BORDER);
+        return this;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (isOpaque()) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+        }
+        Object hints = Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+        if (hints instanceof Map && g instanceof Graphics2D) {
+            ((Graphics2D) g).addRenderingHints((Map<?, ?>) hints);
+        }
+        g.setColor(getForeground());
+        g.setFont(getFont());
+        FontMetrics metrics = getFontMetrics(getFont());
+        getInsets(insets);
+        int baseline = insets.top + (getHeight() - insets.top - insets.bottom - metrics.getHeight()) / 2 + metrics.getAscent();
+        g.drawChars(text, 0, length, insets.left, baseline);
+    }
+
+    // As in DefaultTableCellRenderer, the renderer is only ever painted, so these are skipped for speed
+
+    @Override
+    public void invalidate() {
+    }
+
+    @Override
+    public void validate() {
+    }
+
+    @Override
+    public void revalidate() {
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+    }
+
+    @Override
+    public void repaint(Rectangle r) {
+    }
+
+    @Override
+    public void repaint() {
+    }
+
+    @Override
+    protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+    }
+
+    @Override
+    public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {
+    }
+}
@@ -0,0 +1,87 @@
+package TipsGUI;
+
+import javax.swing.*;
+import java.awt.Component;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Exports the table as a CSV file in the background, through a CsvExporter reading a snapshot of the ledger.
+ * Paths ending in ".tips" are saved as a binary SnapshotFile instead, and paths ending in ".tipz"
+ * as a compressed ArchiveFile.
+ * With live shares on, the tips are split exactly for the live range in the background too.
+ * It is run by a JobScheduler, which shows its progress and can cancel it.
+ */
+public class CsvExportWorker extends SwingWorker<Long, Void> {
+    private final Path path;
+    private final EmployeeStore store;
+    private final Component parent;
+    // The live range, if the shares shown are live
+    private final int startingMonth;
+    private final int endingMonth;
+    private final long tipsPennies;
+    private final boolean liveShares;
+    private long startNanos;
+
+    /**
+     * Must be created on the event dispatch thread, as it snapshots the table's contents.
+     * @param path The full path of the file to write
+     * @param model The table to export
+     * @param parent The component to show errors over
+     */
+    public CsvExportWorker(Path path, EmployeeTableModel model, Component parent) {
+        this.path = path;
+        this.store = model.getLedger().snapshot().getStore();
+        this.parent = parent;
+        LiveTipShares liveTipShares = model.getLiveTipShares();
+        liveShares = liveTipShares != null;
+        startingMonth = liveShares ? liveTipShares.getStartingMonth() : 0;
+        endingMonth = liveShares ? liveTipShares.getEndingMonth() : 0;
+        tipsPennies = liveShares ? liveTipShares.getTips() : 0;
+    }
+
+    /**
+     * @return The number of characters, or bytes for a snapshot or archive, written
+     */
+    @Override
+    protected Long doInBackground() throws IOException {
+        startNanos = System.nanoTime();
+        EmployeeStore store = this.store;
+        if (liveShares) {
+            // Each page is copied as its shares are set, here rather than on the event dispatch thread
+            store = store.copy();
+            TipsCalculator.calculate(store, startingMonth, endingMonth, tipsPennies, new TipAllocator());
+        }
+        String fileName = path.getFileName().toString().toLowerCase();
+        if (fileName.endsWith("." + SnapshotFile.EXTENSION)) {
+            return SnapshotFile.write(store, path, this::isCancelled, this::setProgress);
+        }
+        if (fileName.endsWith("." + ArchiveFile.EXTENSION)) {
+            return ArchiveFile.write(store, path, this::isCancelled, this::setProgress);
+        }
+        return CsvExporter.write(store, path, this::isCancelled, this::setProgress);
+    }
+
+    @Override
+    protected void done() {
+        try {
+            get();
+            Metrics.time("export", startNanos);
+            Metrics.add("export.rows", store.getRowCount());
+            Metrics.add("export.bytes", path.toFile().length());
+        } catch (CancellationException e) {
+            // The partly written file has been removed
+            Metrics.count("export.cancelled");
+        } catch (InterruptedException | ExecutionException e) {
+            Metrics.count("export.errors");
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            JOptionPane.showMessageDialog(
+                    parent,
+                    "The file could not be written: " + cause.getMessage(),
+                    "File error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package TipsGUI;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * Writes an EmployeeStore as a CSV file.
+ * Rows are formatted straight from the store into a reused line buffer, and written through a large buffer.
+ * The output matches opencsv's CSVWriter defaults: every field in double quotes, quotes doubled, and lines ending in "\n".
+ * After the table's columns comes each employee's id, so importing the file again finds the same employees.
+ */
+public final class CsvExporter {
+    /** The header of the column holding employee ids. */
+    public static final String ID_HEADER = "Id";
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int PROGRESS_INTERVAL = 4096;
+    private static final int MAX_ID_LENGTH = 19;
+
+    private CsvExporter() {
+    }
+
+    /**
+     * Write a store to a file.
+     * @param store The employees to write; must not change while writing
+     * @param path The full path of the file to write
+     * @param cancelled Checked every few thousand rows; the file is deleted if it returns true
+     * @param progress Receives the percentage of rows written so far
+     * @return The number of characters written
+     * @throws IOException If the file can't be written
+     */
+    public static long write(EmployeeStore store, Path path, BooleanSupplier cancelled, IntConsumer progress) throws IOException {
+        long written = 0;
+        boolean stopped = false;
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8)) {
+            char[] line = new char[256];
+            int length = 0;
+            for (int col = 0; col < EmployeeTableModel.COLUMN_NAMES.length; col++) {
+                length = appendQuoted(line, length, col, EmployeeTableModel.COLUMN_NAMES[col]);
+            }
+            length = appendQuoted(line, length, EmployeeTableModel.COLUMN_NAMES.length, ID_HEADER);
+            line[length++] = '\n';
+            writer.write(line, 0, length);
+            written += length;
+
+            // The OutputStreamWriter's own buffer is small, so lines are gathered into a larger one first
+            char[] buffer = new char[WRITE_BUFFER_SIZE];
+            int buffered = 0;
+            int rowCount = store.getRowCount();
+            for (int row = 0; row < rowCount; row++) {
+                line = ensureLineCapacity(line, store.getName(row));
+                length = appendQuoted(line, 0, 0, store.getName(row));
+                for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+                    line[length++] = ',';
+                    line[length++] = '"';
+                    length = DurationFormat.format(store.getMinutes(row, month), line, length);
+                    line[length++] = '"';
+                }
+                line[length++] = ',';
+                line[length++] = '"';
+                length = MoneyFormat.format(store.getTipShare(row), line, length);
+                line[length++] = '"';
+                line[length++] = ',';
+                line[length++] = '"';
+                length = appendDigits(line, length, store.getId(row));
+                line[length++] = '"';
+                line[length++] = '\n';
+
+                if (buffered + length > buffer.length) {
+                    writer.write(buffer, 0, buffered);
+                    written += buffered;
+                    buffered = 0;
+                }
+                if (length > buffer.length) {
+                    // A row with a very long name is written on its own rather than through the buffer
+                    writer.write(line, 0, length);
+                    written += length;
+                } else {
+                    System.arraycopy(line, 0, buffer, buffered, length);
+                    buffered += length;
+                }
+
+                if (row % PROGRESS_INTERVAL == 0) {
+                    if (cancelled.getAsBoolean()) {
+                        stopped = true;
+                        break;
+                    }
+                    progress.accept((int) ((long) row * 100 / rowCount));
+                }
+            }
+            writer.write(buffer, 0, buffered);
+            written += buffered;
+        }
+        if (stopped) {
+            Files.deleteIfExists(path);
+        }
+        return written;
+    }
+
+    /**
+     * Make sure a line buffer has room for a row with the given name, quoted at worst as every character doubled.
+     */
+    private static char[] ensureLineCapacity(char[] line, String name) {
+        int needed = (name == null ? 0 : name.length() * 2) + 3
+                + EmployeeStore.MONTHS * (DurationFormat.MAX_LENGTH + 3)
+                + MoneyFormat.MAX_LENGTH + 3
+                + MAX_ID_LENGTH + 4;
+        return needed <= line.length ? line : new char[needed];
+    }
+
+    /**
+     * Append a number that isn't negative, without allocating.
+     */
+    private static int appendDigits(char[] line, int length, long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int end = length + digits;
+        int i = end;
+        do {
+            line[--i] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        return end;
+    }
+
+    /**
+     * Append a field in double quotes, preceded by a comma unless it is the first column.
+     */
+    private static int appendQuoted(char[] line, int length, int column, String value) {
+        if (column > 0) {
+            line[length++] = ',';
+        }
+        line[length++] = '"';
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    line[length++] = '"';
+                }
+                line[length++] = c;
+            }
+        }
+        line[length++] = '"';
+        return length;
+    }
+}
@@ -0,0 +1,43 @@
+package TipsGUI;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Matches the header of an imported CSV file to the table's columns, once per file, so each record's fields
+ * can be copied straight to where they belong. Names are matched ignoring case and surrounding spaces,
+ * and the columns may be in any order; columns the table doesn't have are ignored.
+ */
+final class CsvHeader {
+    /** Marks a file column that isn't part of the table. */
+    static final int IGNORED = -1;
+    /** Marks the file column holding employee ids. */
+    static final int ID = -2;
+
+    private CsvHeader() {
+    }
+
+    /**
+     * @param names The header's column names, in file order
+     * @return The table column for each file column, ID or IGNORED
+     * @throws IOException If there is no Name column
+     */
+    static int[] columnTargets(List<String> names) throws IOException {
+        int[] targets = new int[names.size()];
+        boolean hasName = false;
+        for (int i = 0; i < targets.length; i++) {
+            String name = names.get(i).trim();
+            targets[i] = CsvExporter.ID_HEADER.equalsIgnoreCase(name) ? ID : IGNORED;
+            for (int col = 0; col < EmployeeTableModel.COLUMN_NAMES.length; col++) {
+                if (EmployeeTableModel.COLUMN_NAMES[col].equalsIgnoreCase(name)) {
+                    targets[i] = col;
+                    hasName |= col == EmployeeTableModel.NAME_COLUMN;
+                }
+            }
+        }
+        if (!hasName) {
+            throw new IOException("The file has no Name column");
+        }
+        return targets;
+    }
+}
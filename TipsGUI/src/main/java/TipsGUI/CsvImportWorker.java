@@ -0,0 +1,148 @@
+package TipsGUI;
+
+import javax.swing.*;
+import java.awt.Component;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Imports a CSV file in the background.
+ * Rows are read lazily off the event dispatch thread by a CsvImporter, converted in batches.
+ * Files of PARALLEL_THRESHOLD bytes or more are parsed in parallel by a ParallelCsvImporter instead,
+ * ".tips" snapshots are read straight from a SnapshotFile, and ".tipz" archives from an ArchiveFile.
+ *
+ * When replacing the table, the rows are read into a store of their own, which only takes the table's place once
+ * the whole file has been read; a file that can't be read, or an import that is cancelled, leaves the table as it was.
+ * When merging, each batch is merged into the table with a single event as it arrives, and employees already
+ * in the table are updated in place rather than added again.
+ * It is run by a JobScheduler, which shows its progress and can cancel it.
+ */
+public class CsvImportWorker extends SwingWorker<Long, RowBatch> {
+    public static final long PARALLEL_THRESHOLD = 32 << 20;
+
+    private final File file;
+    private final EmployeeTableModel model;
+    private final Component parent;
+    /** Matches the rows read to the table's, or null when replacing the table. */
+    private final RowMatcher matcher;
+    /** The rows read so far when replacing the table, or null when merging. */
+    private final EmployeeStore staged;
+    /** True once a merge may have left out days or other years the file holds, which only a replacing import keeps. */
+    private boolean monthsOnly;
+    private long startNanos;
+
+    /**
+     * @param file The CSV file, snapshot or archive to replace the table with
+     * @param model The table to import into
+     * @param parent The component to show errors over
+     */
+    public CsvImportWorker(File file, EmployeeTableModel model, Component parent) {
+        this(file, model, parent, false);
+    }
+
+    /**
+     * @param file The CSV file, snapshot or archive to import
+     * @param model The table to import into
+     * @param parent The component to show errors over
+     * @param merge True to update employees already in the table, matched by id and name, and only add new ones;
+     *              false to replace the table
+     */
+    public CsvImportWorker(File file, EmployeeTableModel model, Component parent, boolean merge) {
+        this.file = file;
+        this.model = model;
+        this.parent = parent;
+        this.matcher = merge ? new RowMatcher(model.getStore()) : null;
+        if (merge) {
+            staged = null;
+        } else {
+            // A CSV file holds the months of the year shown, and ids the table gave out are never given out again
+            staged = new EmployeeStore();
+            staged.setYear(model.getStore().getYear());
+            staged.reserveIds(model.getStore().getNextId());
+        }
+    }
+
+    @Override
+    protected Long doInBackground() throws IOException {
+        startNanos = System.nanoTime();
+        // A staged store is only read on the event dispatch thread once get has handed it over in done
+        Consumer<RowBatch> sink = staged == null ? this::publish : staged::addRows;
+        String fileName = file.getName().toLowerCase();
+        if (fileName.endsWith("." + SnapshotFile.EXTENSION)) {
+            SnapshotFile snapshot = SnapshotFile.open(file.toPath());
+            if (staged != null) {
+                // Days, other years and the year shown come back with the rows
+                snapshot.loadInto(staged);
+                return (long) staged.getRowCount();
+            }
+            monthsOnly = snapshot.getSeriesCount() > 0;
+            return snapshot.importTo(sink, this::isCancelled, this::setProgress);
+        }
+        if (fileName.endsWith("." + ArchiveFile.EXTENSION)) {
+            ArchiveFile archive = ArchiveFile.open(file.toPath());
+            if (staged != null) {
+                // A cancelled load is thrown away in done, so the store left part filled is never used
+                archive.loadInto(staged, this::isCancelled, percent -> setProgress(Math.min(99, percent)));
+                return (long) staged.getRowCount();
+            }
+            // Every archived employee's time is in blocks only a load reads, so a merge may leave some out
+            monthsOnly = true;
+            return archive.importTo(sink, this::isCancelled, this::setProgress);
+        }
+        if (file.length() >= PARALLEL_THRESHOLD) {
+            return new ParallelCsvImporter(file.toPath()).importTo(
+                    sink, this::isCancelled, percent -> setProgress(Math.min(99, percent)));
+        }
+        return new CsvImporter(file.toPath()).importTo(sink, this::isCancelled, this::setProgress);
+    }
+
+    @Override
+    protected void process(List<RowBatch> batches) {
+        if (isCancelled()) {
+            return;
+        }
+        for (RowBatch batch : batches) {
+            model.mergeRows(batch, matcher);
+        }
+    }
+
+    @Override
+    protected void done() {
+        try {
+            long rows = get();
+            if (staged != null) {
+                model.replaceRows(staged);
+            }
+            Metrics.time("import", startNanos);
+            Metrics.add("import.rows", rows);
+            Metrics.add("import.bytes", file.length());
+            if (monthsOnly) {
+                JOptionPane.showMessageDialog(
+                        parent,
+                        "Only the months of the year shown in the file were added. To keep any days and other years"
+                                + " it holds as well, import it with \"Import CSV (replace table)\" instead.",
+                        "Import",
+                        JOptionPane.INFORMATION_MESSAGE);
+            }
+        } catch (CancellationException e) {
+            // Rows already merged are kept, but a table being replaced is left as it was
+            Metrics.count("import.cancelled");
+        } catch (InterruptedException | ExecutionException e) {
+            Metrics.count("import.errors");
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            String message = cause instanceof FileNotFoundException
+                    ? "No such file exists"
+                    : "The file could not be read: " + cause.getMessage();
+            JOptionPane.showMessageDialog(
+                    parent,
+                    message,
+                    "File error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
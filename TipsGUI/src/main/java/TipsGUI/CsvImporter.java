@@ -0,0 +1,365 @@
+package TipsGUI;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Imports a CSV file in the layout CsvExporter writes on the calling thread.
+ * The header is matched to the table's columns once, in any order, and each record's fields are then parsed straight
+ * out of the read buffer into a row batch, with only the name becoming a String.
+ * Rows are handed on in batches, so the whole file is never held in memory at once.
+ */
+public class CsvImporter {
+    private static final int BATCH_SIZE = 2048;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+
+    public CsvImporter(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Parse the file, handing each batch of rows to a sink in file order.
+     * @param sink Receives the batches
+     * @param cancelled Checked between rows; the import stops early once it returns true
+     * @param progress Receives the percentage of the file read so far
+     * @return The number of rows imported
+     * @throws IOException If the file can't be read or has no Name column
+     */
+    public long importTo(Consumer<RowBatch> sink, BooleanSupplier cancelled, IntConsumer progress) throws IOException {
+        try (RecordReader reader = open(0)) {
+            if (!reader.nextRecord()) {
+                return 0;
+            }
+            List<String> headers = new ArrayList<>(reader.getFieldCount());
+            for (int field = 0; field < reader.getFieldCount(); field++) {
+                headers.add(reader.getString(field));
+            }
+            return importRows(reader, CsvHeader.columnTargets(headers), 0, sink, cancelled, progress);
+        }
+    }
+
+    /**
+     * Parse the rows from part way through the file, e.g. where a ParallelCsvImporter could go no further.
+     * @param offset The byte offset of the first row to read, which must start a line
+     * @param columnTargets The table column for each file column, as read from the header
+     * @param sink Receives the batches
+     * @param cancelled Checked between rows; the import stops early once it returns true
+     * @param progress Receives the percentage of the whole file read so far
+     * @return The number of rows imported
+     * @throws IOException If the file can't be read
+     */
+    long importFrom(long offset, int[] columnTargets, Consumer<RowBatch> sink, BooleanSupplier cancelled,
+                    IntConsumer progress) throws IOException {
+        try (RecordReader reader = open(offset)) {
+            return importRows(reader, columnTargets, offset, sink, cancelled, progress);
+        }
+    }
+
+    private RecordReader open(long offset) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        channel.position(offset);
+        return new RecordReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read every record after the reader's current one into batches.
+     * @param offset Where in the file the reader started, to work out the progress from
+     */
+    private long importRows(RecordReader reader, int[] columnTargets, long offset, Consumer<RowBatch> sink,
+                            BooleanSupplier cancelled, IntConsumer progress) throws IOException {
+        long fileSize = Math.max(Files.size(path), 1);
+        long imported = 0;
+        RowBatch batch = new RowBatch(BATCH_SIZE);
+        while (!cancelled.getAsBoolean() && reader.nextRecord()) {
+            if (reader.isBlank()) {
+                continue;
+            }
+            addRow(reader, columnTargets, batch);
+            if (batch.isFull()) {
+                imported += batch.size();
+                sink.accept(batch);
+                batch = new RowBatch(BATCH_SIZE);
+                progress.accept((int) Math.min(99, (offset + reader.getCharsRead()) * 100 / fileSize));
+            }
+        }
+        if (!batch.isEmpty() && !cancelled.getAsBoolean()) {
+            imported += batch.size();
+            sink.accept(batch);
+        }
+        return imported;
+    }
+
+    /**
+     * Copy the current record into a batch, reading the durations and tip share as it goes.
+     * Months missing from the file are left unreadable, and a missing tip share is 0.
+     * @param batch The batch to add to; must not be full
+     */
+    private static void addRow(RecordReader reader, int[] columnTargets, RowBatch batch) {
+        int row = batch.add(null, 0);
+        for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+            batch.setMinutes(row, month, EmployeeStore.INVALID_MINUTES);
+        }
+        int fields = Math.min(columnTargets.length, reader.getFieldCount());
+        for (int field = 0; field < fields; field++) {
+            int target = columnTargets[field];
+            if (target == EmployeeTableModel.NAME_COLUMN) {
+                batch.setName(row, reader.getString(field));
+            } else if (target == CsvHeader.ID) {
+                batch.setId(row, reader.getId(field));
+            } else if (target == EmployeeTableModel.TIP_SHARE_COLUMN) {
+                batch.setTipShare(row, reader.getPennies(field));
+            } else if (target != CsvHeader.IGNORED) {
+                batch.setMinutes(row, target, reader.getMinutes(field));
+            }
+        }
+    }
+
+    /**
+     * Reads a file a record at a time into a buffer of characters, noting where each field starts and ends in it.
+     * Fields may be in double quotes, with quotes doubled, and quoted fields may contain commas and line breaks.
+     * A record that runs past the end of the buffer is read again once the buffer has been refilled,
+     * so every field of the current record is always in the buffer whole.
+     */
+    private static class RecordReader implements CharSequence, Closeable {
+        private final Reader in;
+        private char[] buffer = new char[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private boolean endOfInput;
+        private long charsRead;
+
+        private int fieldCount;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private boolean[] escaped = new boolean[16];
+
+        RecordReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * Move on to the next record.
+         * @return False at the end of the file
+         */
+        boolean nextRecord() throws IOException {
+            while (true) {
+                if (position == limit && endOfInput) {
+                    return false;
+                }
+                int next = parseRecord(position);
+                if (next >= 0) {
+                    position = next;
+                    return true;
+                }
+                refill();
+            }
+        }
+
+        /**
+         * Find the fields of the record starting at an index.
+         * @return The index after the record's line break, or -1 if the buffer ends before the record does
+         */
+        private int parseRecord(int index) {
+            fieldCount = 0;
+            char[] chars = buffer;
+            while (true) {
+                int start;
+                int end;
+                boolean quotesDoubled = false;
+                if (index < limit && chars[index] == '"') {
+                    start = ++index;
+                    while (true) {
+                        if (index == limit) {
+                            if (!endOfInput) {
+                                return -1;
+                            }
+                            // An unclosed quote runs to the end of the file
+                            break;
+                        }
+                        if (chars[index] == '"') {
+                            if (index + 1 == limit && !endOfInput) {
+                                return -1;
+                            }
+                            if (index + 1 < limit && chars[index + 1] == '"') {
+                                quotesDoubled = true;
+                                index += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        index++;
+                    }
+                    end = index;
+                    // Anything between the closing quote and the comma is dropped
+                    while (index < limit && chars[index] != ',' && chars[index] != '\n') {
+                        index++;
+                    }
+                } else {
+                    start = index;
+                    while (index < limit && chars[index] != ',' && chars[index] != '\n') {
+                        index++;
+                    }
+                    end = index > start && chars[index - 1] == '\r' ? index - 1 : index;
+                }
+                if (index == limit && !endOfInput) {
+                    return -1;
+                }
+                addField(start, end, quotesDoubled);
+                if (index == limit) {
+                    // The last record of a file without a final line break
+                    return index;
+                }
+                if (chars[index++] == '\n') {
+                    return index;
+                }
+            }
+        }
+
+        private void addField(int start, int end, boolean quotesDoubled) {
+            if (fieldCount == starts.length) {
+                starts = Arrays.copyOf(starts, fieldCount * 2);
+                ends = Arrays.copyOf(ends, fieldCount * 2);
+                escaped = Arrays.copyOf(escaped, fieldCount * 2);
+            }
+            starts[fieldCount] = start;
+            ends[fieldCount] = end;
+            escaped[fieldCount] = quotesDoubled;
+            fieldCount++;
+        }
+
+        /**
+         * Move the record in progress to the start of the buffer, growing it if the record fills it,
+         * and read more of the file after it.
+         */
+        private void refill() throws IOException {
+            int kept = limit - position;
+            if (position == 0 && limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            } else {
+                System.arraycopy(buffer, position, buffer, 0, kept);
+            }
+            position = 0;
+            limit = kept;
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                // Skip the byte order mark some spreadsheets start files with
+                if (charsRead == 0 && buffer[0] == '\uFEFF') {
+                    position = 1;
+                }
+                limit += read;
+                charsRead += read;
+            }
+        }
+
+        int getFieldCount() {
+            return fieldCount;
+        }
+
+        /**
+         * @return The number of characters read from the file so far
+         */
+        long getCharsRead() {
+            return charsRead;
+        }
+
+        /**
+         * @return True if the current record is an empty line
+         */
+        boolean isBlank() {
+            return fieldCount == 1 && starts[0] == ends[0] && (starts[0] == 0 || buffer[starts[0] - 1] != '"');
+        }
+
+        /**
+         * @return The field's text, with any doubled quotes undoubled
+         */
+        String getString(int field) {
+            int start = starts[field];
+            int end = ends[field];
+            if (!escaped[field]) {
+                return new String(buffer, start, end - start);
+            }
+            StringBuilder text = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                text.append(buffer[i]);
+                if (buffer[i] == '"') {
+                    i++;
+                }
+            }
+            return text.toString();
+        }
+
+        /**
+         * @return The field as minutes, or EmployeeStore.INVALID_MINUTES if it isn't a duration
+         */
+        int getMinutes(int field) {
+            return DurationFormat.parseMinutes(this, starts[field], ends[field]);
+        }
+
+        /**
+         * @return The field as pennies, or 0 if it isn't an amount of money
+         */
+        long getPennies(int field) {
+            return MoneyFormat.parsePennies(this, starts[field], ends[field]);
+        }
+
+        /**
+         * @return The field as an employee id, or EmployeeStore.NO_ID if it isn't one
+         */
+        long getId(int field) {
+            int start = starts[field];
+            int end = ends[field];
+            if (start == end || end - start > 18) {
+                return EmployeeStore.NO_ID;
+            }
+            long id = 0;
+            for (int i = start; i < end; i++) {
+                int digit = buffer[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return EmployeeStore.NO_ID;
+                }
+                id = id * 10 + digit;
+            }
+            return id;
+        }
+
+        @Override
+        public int length() {
+            return limit;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return buffer[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(buffer, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buffer, 0, limit);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
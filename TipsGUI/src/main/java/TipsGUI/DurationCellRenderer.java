@@ -0,0 +1,11 @@
+package TipsGUI;
+
+/**
+ * Draws a month cell from its minutes, e.g. "128h 31m", leaving unreadable cells blank.
+ */
+public class DurationCellRenderer extends CharCellRenderer {
+    @Override
+    protected int format(EmployeeCells cells, int row, int column, char[] buffer) {
+        return DurationFormat.format(cells.getMinutes(row, column), buffer, 0);
+    }
+}
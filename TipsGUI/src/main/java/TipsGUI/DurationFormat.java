@@ -0,0 +1,151 @@
+package TipsGUI;
+
+/**
+ * Converts between the "128h 31m" text shown in the table and whole minutes.
+ * The accepted format is the same as the regular expression "\\d+[hH]\\s\\d{0,2}[mM]".
+ */
+public final class DurationFormat {
+    /** The most characters format can write: ten digits of hours and "h 00m". */
+    public static final int MAX_LENGTH = 15;
+    /** Durations up to a month of round-the-clock work cover every real month cell, so their text is kept once made. */
+    private static final int CACHED_MINUTES = 31 * 24 * 60;
+    private static final String[] TEXT_CACHE = new String[CACHED_MINUTES + 1];
+
+    private DurationFormat() {
+    }
+
+    /**
+     * Read a cell's text as minutes.
+     * @param value The cell's value, in the following format: "0h 00m"
+     * @return The duration in minutes, or EmployeeStore.INVALID_MINUTES if the text is not in the accepted format
+     */
+    public static int toMinutes(Object value) {
+        if (value instanceof CharSequence) {
+            CharSequence text = (CharSequence) value;
+            return parseMinutes(text, 0, text.length());
+        }
+        return value == null ? EmployeeStore.INVALID_MINUTES : toMinutes(String.valueOf(value));
+    }
+
+    /**
+     * Read part of a character sequence as minutes, in a single pass and without allocating.
+     * @param text The characters to read
+     * @param start The index of the first character, inclusive
+     * @param end The index of the last character, exclusive
+     * @return The duration in minutes, or EmployeeStore.INVALID_MINUTES if the text is not in the accepted format
+     */
+    public static int parseMinutes(CharSequence text, int start, int end) {
+        int i = start;
+
+        // One or more digits of hours
+        long hours = 0;
+        while (i < end && isDigit(text.charAt(i))) {
+            hours = hours * 10 + (text.charAt(i) - '0');
+            if (hours > Integer.MAX_VALUE / 60) {
+                return EmployeeStore.INVALID_MINUTES;
+            }
+            i++;
+        }
+        if (i == start || i >= end || (text.charAt(i) != 'h' && text.charAt(i) != 'H')) {
+            return EmployeeStore.INVALID_MINUTES;
+        }
+        i++;
+
+        // Exactly one whitespace character
+        if (i >= end || !isWhitespace(text.charAt(i))) {
+            return EmployeeStore.INVALID_MINUTES;
+        }
+        i++;
+
+        // Up to two digits of minutes
+        int minutes = 0;
+        int minuteDigits = 0;
+        while (i < end && minuteDigits < 2 && isDigit(text.charAt(i))) {
+            minutes = minutes * 10 + (text.charAt(i) - '0');
+            minuteDigits++;
+            i++;
+        }
+        if (i != end - 1 || (text.charAt(i) != 'm' && text.charAt(i) != 'M')) {
+            return EmployeeStore.INVALID_MINUTES;
+        }
+
+        long total = hours * 60 + minutes;
+        return total > Integer.MAX_VALUE ? EmployeeStore.INVALID_MINUTES : (int) total;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Matches the regular expression class \s: space, tab, line feed, vertical tab, form feed and carriage return.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    /**
+     * Write minutes as cell text.
+     * The text of common durations is cached, so asking for it again creates nothing.
+     * @param minutes The duration in minutes
+     * @return The duration in the following format: "0h 00m", or an empty string for an invalid value
+     */
+    public static String toText(int minutes) {
+        if (minutes < 0) {
+            return "";
+        } else if (minutes > CACHED_MINUTES) {
+            return newText(minutes);
+        }
+        // Strings are immutable, so a race to fill an entry only costs a duplicate
+        String text = TEXT_CACHE[minutes];
+        if (text == null) {
+            text = newText(minutes);
+            TEXT_CACHE[minutes] = text;
+        }
+        return text;
+    }
+
+    private static String newText(int minutes) {
+        char[] buffer = new char[MAX_LENGTH];
+        return new String(buffer, 0, format(minutes, buffer, 0));
+    }
+
+    /**
+     * Write minutes as cell text into a character buffer, without allocating.
+     * @param minutes The duration in minutes
+     * @param buffer The buffer to write to, with at least MAX_LENGTH characters free from the offset
+     * @param offset Where to start writing
+     * @return The offset after the last character written; nothing is written for an invalid value
+     */
+    public static int format(int minutes, char[] buffer, int offset) {
+        if (minutes < 0) {
+            return offset;
+        }
+        int hours = minutes / 60;
+        int remainder = minutes % 60;
+
+        // Hours, written backwards from the end of their digits
+        int end = offset + digitCount(hours);
+        int i = end;
+        do {
+            buffer[--i] = (char) ('0' + hours % 10);
+            hours /= 10;
+        } while (hours > 0);
+
+        buffer[end] = 'h';
+        buffer[end + 1] = ' ';
+        buffer[end + 2] = (char) ('0' + remainder / 10);
+        buffer[end + 3] = (char) ('0' + remainder % 10);
+        buffer[end + 4] = 'm';
+        return end + 5;
+    }
+
+    private static int digitCount(int value) {
+        int count = 1;
+        while (value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,827 @@
+package TipsGUI;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of every change made to the employee table, so edits survive a crash between saves.
+ * Changes are encoded into a pending buffer by the thread making them, and a writer thread appends them to the file
+ * in groups, syncing each group to disk once. Making a change costs no disk access, and a crash loses
+ * at most the last FLUSH_INTERVAL_MILLIS of changes.
+ *
+ * The file is big-endian: int magic "TJNL", int version, then entries each written as
+ * int length, the entry, and an int CRC-32 of the entry. Every entry starts with long sequence and byte type:
+ * <pre>
+ * ADD     long id, name, int minutes[12], long tipShare
+ * DELETE  long id
+ * CLEAR
+ * EDIT    long id, byte column, then the old value and the new: a name, int minutes or long pennies
+ * SHARES  int count, long tipShare[count] in row order
+ * DAY     long id, long epochDay, int oldMinutes, int newMinutes
+ * YEAR    int oldYear, int newYear
+ * RESTORE int year, long nextId, int runCount, then runs of byte KEPT, int firstRow, int count
+ *         or byte CHANGED, long id, name, int minutes[12], long tipShare, int entryCount,
+ *         then entryCount of int year, byte month, byte day, int minutes
+ * </pre>
+ * Names are an int length and UTF-8 bytes, or length -1 for none.
+ * A RESTORE entry replaces the whole table, e.g. on undo: KEPT runs are rows of the table before it, in order,
+ * and CHANGED rows are written out whole with their days and other years, with a day of 0 for a whole month.
+ * Minutes edited in a month column, and added with a new employee, are for the year shown at the time,
+ * which YEAR entries keep track of. Version 1 files have no DAY or YEAR entries, and version 2 files no RESTORE entries.
+ * A damaged or partly written entry at the end of the file is dropped when the journal is opened.
+ */
+public class EditJournal implements Closeable {
+    public static final long FLUSH_INTERVAL_MILLIS = 100;
+
+    private static final int MAGIC = 0x544A4E4C;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_ENTRY_SIZE = 1 << 30;
+    /** Pending changes beyond this size are written straight away rather than waiting for the next interval. */
+    private static final int EAGER_FLUSH_SIZE = 1 << 20;
+    /** Making changes waits for the writer once this much is pending, rather than using ever more memory. */
+    private static final int MAX_PENDING_SIZE = 64 << 20;
+    private static final int INITIAL_BUFFER_SIZE = 64 << 10;
+
+    private static final byte ADD = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+    private static final byte EDIT = 4;
+    private static final byte SHARES = 5;
+    private static final byte DAY = 6;
+    private static final byte YEAR = 7;
+    private static final byte RESTORE = 8;
+    /** What read gives as the last year switched to when the journal has no YEAR entries. */
+    private static final long NO_YEAR = Long.MIN_VALUE;
+
+    // Runs of a RESTORE entry
+    private static final byte KEPT = 1;
+    private static final byte CHANGED = 2;
+
+    private final Path path;
+    private final Consumer<IOException> failureHandler;
+    private final Thread writer;
+    private final CRC32 crc = new CRC32();
+
+    // Guarded by this
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private long sequence;
+    private long durableSequence;
+    private long discardThrough;
+    private boolean closing;
+    private IOException failure;
+
+    // Only used by the writer thread once it has started
+    private FileChannel channel;
+    private volatile long fileSize;
+
+    private EditJournal(Path path, FileChannel channel, long sequence, Consumer<IOException> failureHandler) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.sequence = sequence;
+        this.durableSequence = sequence;
+        this.failureHandler = failureHandler;
+        this.fileSize = channel.size();
+        writer = new Thread(this::writeLoop, "Journal writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Open a journal, first replaying into a store the changes it holds after a snapshot of that store.
+     * A missing journal is created, and a damaged end is cut off.
+     * @param path The journal file
+     * @param store The store restored from the snapshot, or an empty store if there is none
+     * @param afterSequence The sequence of the last change the snapshot includes, or 0
+     * @param failureHandler Told, on the writer thread, if the journal can no longer be written
+     * @return The journal, ready to record further changes
+     * @throws IOException If the journal can't be read or isn't a journal
+     */
+    public static EditJournal open(Path path, EmployeeStore store, long afterSequence,
+                                   Consumer<IOException> failureHandler) throws IOException {
+        long validLength = HEADER_SIZE;
+        long lastSequence = afterSequence;
+        long lastYear = NO_YEAR;
+        // A file too short for its header was cut off as it was created
+        if (Files.exists(path) && Files.size(path) >= HEADER_SIZE) {
+            long[] scan = read(path, afterSequence, store);
+            validLength = scan[0];
+            lastSequence = Math.max(lastSequence, scan[1]);
+            lastYear = scan[3];
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // Older entries are all still valid, so an older file just takes on this version
+            writeHeader(channel);
+            channel.truncate(validLength);
+            channel.position(validLength);
+            channel.force(true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        EditJournal journal = new EditJournal(path, channel, lastSequence, failureHandler);
+        // Later month edits are then replayed into the same year, even if the store starts on another one.
+        // A YEAR entry before the snapshot was taken is in the snapshot too, so it still counts.
+        if (lastYear != store.getYear()) {
+            journal.yearShown(store.getYear(), store.getYear());
+        }
+        return journal;
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * Read a journal, applying the changes after a sequence to a store.
+     * @param store The store to apply the changes to, or null to only find where they start
+     * @return The length of the undamaged part of the file, the last sequence in it,
+     *         the offset of the first entry after the sequence given, and the year the last YEAR entry
+     *         switched to, or NO_YEAR if there is none
+     */
+    private static long[] read(Path path, long afterSequence, EmployeeStore store) throws IOException {
+        long offset = HEADER_SIZE;
+        long lastSequence = 0;
+        long firstAfter = -1;
+        long lastYear = NO_YEAR;
+        DeleteBatch deletes = new DeleteBatch();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a journal file");
+            }
+            int version = in.readInt();
+            if (version > VERSION) {
+                throw new IOException("The journal is from a newer version (" + version + ")");
+            }
+
+            CRC32 crc = new CRC32();
+            byte[] entry = new byte[256];
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                    if (length < Long.BYTES + 1 || length > MAX_ENTRY_SIZE) {
+                        break;
+                    }
+                    if (entry.length < length) {
+                        entry = new byte[Math.max(length, entry.length * 2)];
+                    }
+                    in.readFully(entry, 0, length);
+                    crc.reset();
+                    crc.update(entry, 0, length);
+                    if (in.readInt() != (int) crc.getValue()) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    // A partly written entry at the end
+                    break;
+                }
+
+                ByteBuffer buffer = ByteBuffer.wrap(entry, 0, length);
+                long entrySequence = buffer.getLong();
+                byte type = buffer.get(buffer.position());
+                if (type == YEAR && length >= Long.BYTES + 1 + Integer.BYTES * 2) {
+                    lastYear = buffer.getInt(buffer.position() + 1 + Integer.BYTES);
+                }
+                if (entrySequence > afterSequence) {
+                    if (firstAfter < 0) {
+                        firstAfter = offset;
+                    }
+                    if (store == null) {
+                        break;
+                    }
+                    if (type == DELETE) {
+                        buffer.get();
+                        deletes.add(buffer.getLong());
+                    } else {
+                        deletes.removeFrom(store);
+                        apply(buffer, store);
+                    }
+                }
+                lastSequence = entrySequence;
+                offset += Integer.BYTES + length + Integer.BYTES;
+            }
+        }
+        if (store != null) {
+            deletes.removeFrom(store);
+        }
+        return new long[]{offset, lastSequence, firstAfter < 0 ? offset : firstAfter, lastYear};
+    }
+
+    /**
+     * The ids of a run of DELETE entries, removed together.
+     * Removing a row drops the store's id index, so looking each one up as it is replayed would rebuild
+     * the index once per delete; looking the whole run up first builds it only once.
+     */
+    private static class DeleteBatch {
+        private long[] ids = new long[16];
+        private int count;
+
+        void add(long id) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = id;
+        }
+
+        void removeFrom(EmployeeStore store) {
+            if (count == 0) {
+                return;
+            }
+            int[] rows = new int[count];
+            int found = 0;
+            for (int i = 0; i < count; i++) {
+                int row = store.findRow(ids[i]);
+                if (row >= 0) {
+                    rows[found++] = row;
+                }
+            }
+            Arrays.sort(rows, 0, found);
+            // From the last row up, so the rows still to remove don't move
+            for (int i = found - 1; i >= 0; i--) {
+                if (i == found - 1 || rows[i] != rows[i + 1]) {
+                    store.removeRow(rows[i]);
+                }
+            }
+            count = 0;
+        }
+    }
+
+    /**
+     * Apply an entry to a store. DELETE entries are left to read, which removes a run of them together.
+     */
+    private static void apply(ByteBuffer entry, EmployeeStore store) {
+        byte type = entry.get();
+        switch (type) {
+            case ADD: {
+                long id = entry.getLong();
+                String name = getName(entry);
+                int[] monthlyMinutes = new int[EmployeeStore.MONTHS];
+                for (int month = 0; month < EmployeeStore.MONTHS; month++) {
+                    monthlyMinutes[month] = entry.getInt();
+                }
+                store.addRow(id, name, monthlyMinutes, entry.getLong());
+                break;
+            }
+            case CLEAR:
+                store.clear();
+                break;
+            case EDIT: {
+                int row = store.findRow(entry.getLong());
+                int column = entry.get();
+                if (row < 0) {
+                    break;
+                }
+                if (column == EmployeeTableModel.NAME_COLUMN) {
+                    getName(entry);
+                    store.setName(row, getName(entry));
+                } else if (column == EmployeeTableModel.TIP_SHARE_COLUMN) {
+                    entry.getLong();
+                    store.setTipShare(row, entry.getLong());
+                } else {
+                    entry.getInt();
+                    store.setMinutes(row, column, entry.getInt());
+                }
+                break;
+            }
+            case SHARES: {
+                int count = entry.getInt();
+                for (int row = 0; row < count; row++) {
+                    long share = entry.getLong();
+                    if (row < store.getRowCount()) {
+                        store.setTipShare(row, share);
+                    }
+                }
+                break;
+            }
+            case DAY: {
+                int row = store.findRow(entry.getLong());
+                LocalDate date = LocalDate.ofEpochDay(entry.getLong());
+                entry.getInt();
+                if (row >= 0) {
+                    store.setDayMinutes(row, date, entry.getInt());
+                }
+                break;
+            }
+            case YEAR:
+                entry.getInt();
+                store.setYear(entry.getInt());
+                break;
+            case RESTORE:
+                applyRestore(entry, store);
+                break;
+            default:
+                // An entry from a later version; nothing this version can apply
+                break;
+        }
+    }
+
+    /**
+     * Rebuild the table a RESTORE entry describes, from its changed rows and the kept rows of the store.
+     */
+    private static void applyRestore(ByteBuffer entry, EmployeeStore store) {
+        int year = entry.getInt();
+        long nextId = entry.getLong();
+        int runCount = entry.getInt();
+        EmployeeStore before = store.snapshot();
+        EmployeeStore after = new EmployeeStore();
+        after.setYear(year);
+        for (int run = 0; run < runCount; run++) {
+            if (entry.get() == KEPT) {
+                int firstRow = entry.getInt();
+                int lastRow = Math.min(firstRow + entry.getInt(), before.getRowCount());
+                for (int row = firstRow; row < lastRow; row++) {
+                    after.addRow(before, row);
+                }
+                continue;
+            }
+            long id = entry.getLong();
+            String name = getName(entry);
+            int[] monthlyMinutes = new int[EmployeeStore.MONTHS];
+            for (int month = 0; month < EmployeeStore.MONTHS; month++) {
+                monthlyMinutes[month] = entry.getInt();
+            }
+            int row = after.addRow(id, name, monthlyMinutes, entry.getLong());
+            int entryCount = entry.getInt();
+            if (entryCount > 0) {
+                TimeSeries series = new TimeSeries();
+                for (int i = 0; i < entryCount; i++) {
+                    int entryYear = entry.getInt();
+                    int month = entry.get();
+                    int day = entry.get();
+                    int minutes = entry.getInt();
+                    if (day == 0) {
+                        series.setMonth(entryYear, month, minutes);
+                    } else {
+                        series.setDay(LocalDate.of(entryYear, month, day), minutes);
+                    }
+                }
+                after.setSeries(row, series);
+            }
+        }
+        after.reserveIds(nextId);
+        store.restore(after);
+    }
+
+    private static String getName(ByteBuffer entry) {
+        int length = entry.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String name = new String(entry.array(), entry.arrayOffset() + entry.position(), length, StandardCharsets.UTF_8);
+        entry.position(entry.position() + length);
+        return name;
+    }
+
+    /**
+     * Record an employee added to the end of a store.
+     * @param store The store
+     * @param row The employee's row
+     */
+    public synchronized void rowAdded(EmployeeStore store, int row) {
+        byte[] name = encode(store.getName(row));
+        int start = beginEntry(ADD, Long.BYTES + Integer.BYTES + sizeOf(name)
+                + EmployeeStore.MONTHS * Integer.BYTES + Long.BYTES);
+        if (start < 0) {
+            return;
+        }
+        pending.putLong(store.getId(row));
+        putName(name);
+        for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+            pending.putInt(store.getMinutes(row, month));
+        }
+        pending.putLong(store.getTipShare(row));
+        endEntry(start);
+    }
+
+    /**
+     * Record an employee being removed.
+     * @param id The employee's id
+     */
+    public synchronized void rowDeleted(long id) {
+        int start = beginEntry(DELETE, Long.BYTES);
+        if (start >= 0) {
+            pending.putLong(id);
+            endEntry(start);
+        }
+    }
+
+    /**
+     * Record every employee being removed.
+     */
+    public synchronized void cleared() {
+        int start = beginEntry(CLEAR, 0);
+        if (start >= 0) {
+            endEntry(start);
+        }
+    }
+
+    public synchronized void nameEdited(long id, String oldName, String newName) {
+        byte[] oldBytes = encode(oldName);
+        byte[] newBytes = encode(newName);
+        int start = beginEntry(EDIT, Long.BYTES + 1 + Integer.BYTES * 2 + sizeOf(oldBytes) + sizeOf(newBytes));
+        if (start >= 0) {
+            pending.putLong(id).put((byte) EmployeeTableModel.NAME_COLUMN);
+            putName(oldBytes);
+            putName(newBytes);
+            endEntry(start);
+        }
+    }
+
+    /**
+     * @param month The month edited, 1 to 12
+     */
+    public synchronized void minutesEdited(long id, int month, int oldMinutes, int newMinutes) {
+        int start = beginEntry(EDIT, Long.BYTES + 1 + Integer.BYTES * 2);
+        if (start >= 0) {
+            pending.putLong(id).put((byte) month).putInt(oldMinutes).putInt(newMinutes);
+            endEntry(start);
+        }
+    }
+
+    public synchronized void dayEdited(long id, LocalDate date, int oldMinutes, int newMinutes) {
+        int start = beginEntry(DAY, Long.BYTES * 2 + Integer.BYTES * 2);
+        if (start >= 0) {
+            pending.putLong(id).putLong(date.toEpochDay()).putInt(oldMinutes).putInt(newMinutes);
+            endEntry(start);
+        }
+    }
+
+    /**
+     * Record the month columns being switched to show another year.
+     */
+    public synchronized void yearShown(int oldYear, int newYear) {
+        int start = beginEntry(YEAR, Integer.BYTES * 2);
+        if (start >= 0) {
+            pending.putInt(oldYear).putInt(newYear);
+            endEntry(start);
+        }
+    }
+
+    public synchronized void tipShareEdited(long id, long oldPennies, long newPennies) {
+        int start = beginEntry(EDIT, Long.BYTES + 1 + Long.BYTES * 2);
+        if (start >= 0) {
+            pending.putLong(id).put((byte) EmployeeTableModel.TIP_SHARE_COLUMN).putLong(oldPennies).putLong(newPennies);
+            endEntry(start);
+        }
+    }
+
+    /**
+     * Record every employee's tip share at once, e.g. after the tips are calculated.
+     * @param store The store holding the new shares
+     */
+    public synchronized void tipSharesSet(EmployeeStore store) {
+        int count = store.getRowCount();
+        int start = beginEntry(SHARES, Integer.BYTES + count * Long.BYTES);
+        if (start >= 0) {
+            pending.putInt(count);
+            for (int row = 0; row < count; row++) {
+                pending.putLong(store.getTipShare(row));
+            }
+            endEntry(start);
+        }
+    }
+
+    /**
+     * Record the whole table being put back as it was, e.g. on undo. Rows that are the same before and after
+     * are only referred to by their place in the table before, so the entry grows with the rows that differ.
+     * @param before The table before, normally a snapshot
+     * @param after The table now
+     */
+    public synchronized void restored(EmployeeStore before, EmployeeStore after) {
+        // KEPT runs as their first row and count, and CHANGED rows as -1 and their row now
+        int[] runs = new int[32];
+        int runCount = 0;
+        List<byte[]> names = new ArrayList<>();
+        int size = Integer.BYTES + Long.BYTES + Integer.BYTES;
+        int keptFrom = 0;
+        int kept = 0;
+        int expected = 0;
+        for (int row = 0; row <= after.getRowCount(); row++) {
+            // The rest of a page the tables share is kept without comparing its rows
+            int shared = kept == 0 || keptFrom + kept == expected ? after.getSharedRows(row, before, expected) : 0;
+            if (shared > 0) {
+                keptFrom = kept == 0 ? expected : keptFrom;
+                kept += shared;
+                row += shared - 1;
+                expected += shared;
+                continue;
+            }
+            int match = -1;
+            if (row < after.getRowCount()) {
+                long id = after.getId(row);
+                // Rows mostly follow on from the last one, or from one removed or added since,
+                // so the id index is only needed after a move
+                long expectedId = expected < before.getRowCount() ? before.getId(expected) : EmployeeStore.NO_ID;
+                if (expectedId == id) {
+                    match = expected;
+                } else if (expected + 1 < before.getRowCount() && before.getId(expected + 1) == id) {
+                    match = expected + 1;
+                } else if (row + 1 < after.getRowCount() && after.getId(row + 1) == expectedId) {
+                    match = -1;
+                } else {
+                    match = before.findRow(id);
+                }
+                if (match >= 0) {
+                    expected = match + 1;
+                    if (!after.rowEquals(row, before, match)) {
+                        match = -1;
+                    }
+                }
+                if (match >= 0 && kept > 0 && match == keptFrom + kept) {
+                    kept++;
+                    continue;
+                }
+            }
+            if (kept > 0) {
+                if (runCount * 2 == runs.length) {
+                    runs = Arrays.copyOf(runs, runs.length * 2);
+                }
+                runs[runCount * 2] = keptFrom;
+                runs[runCount * 2 + 1] = kept;
+                runCount++;
+                size += 1 + Integer.BYTES * 2;
+                kept = 0;
+            }
+            if (match >= 0) {
+                keptFrom = match;
+                kept = 1;
+            } else if (row < after.getRowCount()) {
+                if (runCount * 2 == runs.length) {
+                    runs = Arrays.copyOf(runs, runs.length * 2);
+                }
+                runs[runCount * 2] = -1;
+                runs[runCount * 2 + 1] = row;
+                runCount++;
+                byte[] name = encode(after.getName(row));
+                names.add(name);
+                TimeSeries series = after.getSeries(row);
+                int entryCount = series == null ? 0 : series.getEntryCount();
+                size += 1 + Long.BYTES + Integer.BYTES + sizeOf(name) + EmployeeStore.MONTHS * Integer.BYTES
+                        + Long.BYTES + Integer.BYTES + entryCount * (Integer.BYTES + 2 + Integer.BYTES);
+            }
+        }
+
+        int start = beginEntry(RESTORE, size);
+        if (start < 0) {
+            return;
+        }
+        pending.putInt(after.getYear()).putLong(after.getNextId()).putInt(runCount);
+        int changed = 0;
+        for (int run = 0; run < runCount; run++) {
+            if (runs[run * 2] >= 0) {
+                pending.put(KEPT).putInt(runs[run * 2]).putInt(runs[run * 2 + 1]);
+                continue;
+            }
+            int row = runs[run * 2 + 1];
+            pending.put(CHANGED).putLong(after.getId(row));
+            putName(names.get(changed++));
+            for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+                pending.putInt(after.getMinutes(row, month));
+            }
+            pending.putLong(after.getTipShare(row));
+            TimeSeries series = after.getSeries(row);
+            if (series == null) {
+                pending.putInt(0);
+            } else {
+                pending.putInt(series.getEntryCount());
+                series.forEach((year, month, day, minutes) ->
+                        pending.putInt(year).put((byte) month).put((byte) day).putInt(minutes));
+            }
+        }
+        endEntry(start);
+    }
+
+    private static byte[] encode(String name) {
+        return name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] name) {
+        return name == null ? 0 : name.length;
+    }
+
+    private void putName(byte[] name) {
+        if (name == null) {
+            pending.putInt(-1);
+        } else {
+            pending.putInt(name.length).put(name);
+        }
+    }
+
+    /**
+     * Make room for an entry in the pending buffer and start it.
+     * @param size The size of the entry after its sequence and type, counting a missing name as no bytes
+     * @return Where the entry starts in the pending buffer, or -1 if the journal can't be written
+     */
+    private int beginEntry(byte type, int size) {
+        while (pending.position() > MAX_PENDING_SIZE && failure == null && !closing) {
+            notifyAll();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (failure != null || closing) {
+            return -1;
+        }
+
+        int needed = Integer.BYTES + Long.BYTES + 1 + size + Integer.BYTES;
+        if (pending.remaining() < needed) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        int start = pending.position();
+        pending.putInt(0).putLong(++sequence).put(type);
+        return start;
+    }
+
+    /**
+     * Fill in an entry's length and checksum, and wake the writer if enough is pending.
+     */
+    private void endEntry(int start) {
+        int length = pending.position() - start - Integer.BYTES;
+        pending.putInt(start, length);
+        crc.reset();
+        crc.update(pending.array(), start + Integer.BYTES, length);
+        pending.putInt((int) crc.getValue());
+        if (pending.position() >= EAGER_FLUSH_SIZE) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return The sequence of the last change recorded
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The size of the journal file, not counting changes still waiting to be written
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Wait until every change recorded so far is on disk.
+     * @throws IOException If the journal can no longer be written
+     */
+    public synchronized void flush() throws IOException {
+        long target = sequence;
+        while (durableSequence < target && failure == null) {
+            notifyAll();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Drop the changes up to a sequence from the file, once a snapshot including them is safely on disk.
+     * The writer does this in the background.
+     * @param throughSequence The sequence of the last change the snapshot includes
+     */
+    public synchronized void discardThrough(long throughSequence) {
+        discardThrough = Math.max(discardThrough, throughSequence);
+        notifyAll();
+    }
+
+    /**
+     * Write every change still pending, then stop the writer and close the file.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closing) {
+                return;
+            }
+            closing = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        while (true) {
+            ByteBuffer group;
+            long groupSequence;
+            long discard;
+            boolean last;
+            synchronized (this) {
+                if (pending.position() < EAGER_FLUSH_SIZE && discardThrough == 0 && !closing) {
+                    try {
+                        wait(FLUSH_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        closing = true;
+                    }
+                }
+                group = pending;
+                groupSequence = sequence;
+                pending = spare;
+                discard = discardThrough;
+                discardThrough = 0;
+                last = closing;
+                notifyAll();
+            }
+
+            try {
+                if (group.position() > 0) {
+                    group.flip();
+                    while (group.hasRemaining()) {
+                        channel.write(group);
+                    }
+                    channel.force(false);
+                    fileSize = channel.size();
+                }
+                synchronized (this) {
+                    durableSequence = groupSequence;
+                    notifyAll();
+                }
+                if (discard > 0) {
+                    discard(discard);
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                closeQuietly();
+                failureHandler.accept(e);
+                return;
+            }
+
+            // Large groups, e.g. from an import, don't keep their memory once written
+            spare = group.capacity() > EAGER_FLUSH_SIZE ? ByteBuffer.allocate(INITIAL_BUFFER_SIZE) : group;
+            spare.clear();
+            if (last) {
+                closeQuietly();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Rewrite the file without the changes up to a sequence, swapping it in for the old one in a single step.
+     */
+    private void discard(long throughSequence) throws IOException {
+        long keepFrom = read(path, throughSequence, null)[2];
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel compacted = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeHeader(compacted);
+            long end = channel.size();
+            for (long position = keepFrom; position < end; ) {
+                position += channel.transferTo(position, end - position, compacted);
+            }
+            compacted.force(true);
+        }
+        channel.close();
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        fileSize = channel.size();
+    }
+
+    private void closeQuietly() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Everything written has already been synced
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package TipsGUI;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An event queue that notices when an event holds up the event dispatch thread, leaving the window unable to repaint
+ * or respond. Each dispatch notes when it started; a daemon thread looks four times per threshold, and once
+ * a dispatch has run past the threshold it takes the dispatch thread's stack, which shows what it was stuck on.
+ * The stall's full length is filled in when the dispatch ends.
+ *
+ * While a modal dialog is open, its events are dispatched inside the event that opened it. Each of them restarts
+ * the clock for that event, so a dialog left open isn't a stall, but a slow event inside one is.
+ * The most recent MAX_STALLS stalls are kept, and each is also recorded in the "edt.stall" timer of Metrics.
+ */
+public class EdtWatchdog extends EventQueue {
+    public static final int MAX_STALLS = 20;
+    private static final long MIN_THRESHOLD_MILLIS = 10;
+    private static final int MAX_STACK_FRAMES = 40;
+
+    private volatile long thresholdNanos;
+    /** When the dispatch in progress was last known not to be stuck, from System.nanoTime(), or 0 when idle. */
+    private volatile long busySince;
+    private volatile String eventName;
+    private volatile Thread dispatchThread;
+    /** The busySince of the last dispatch the watch thread recorded a stall for. */
+    private volatile long recordedSince;
+    /** Guarded by itself. */
+    private final Deque<Stall> stalls = new ArrayDeque<>();
+
+    private static final class Stall {
+        final long since;
+        final long startMillis;
+        final String eventName;
+        final String stack;
+        /** Negative while the dispatch is still running. */
+        long durationNanos = -1;
+
+        Stall(long since, long startMillis, String eventName, String stack) {
+            this.since = since;
+            this.startMillis = startMillis;
+            this.eventName = eventName;
+            this.stack = stack;
+        }
+
+        @Override
+        public String toString() {
+            String length = durationNanos < 0
+                    ? "still running"
+                    : TimeUnit.NANOSECONDS.toMillis(durationNanos) + " ms";
+            return Instant.ofEpochMilli(startMillis) + " " + eventName
+                    + " held up the event dispatch thread: " + length + stack;
+        }
+    }
+
+    /**
+     * @param thresholdMillis How long an event may hold up the event dispatch thread before it is recorded
+     */
+    public EdtWatchdog(long thresholdMillis) {
+        setThresholdMillis(thresholdMillis);
+    }
+
+    /**
+     * Start the daemon thread that watches for stalls.
+     */
+    public void start() {
+        Thread watcher = new Thread(this::watch, "EDT watchdog");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    public void setThresholdMillis(long millis) {
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(millis, MIN_THRESHOLD_MILLIS));
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        long outerSince = busySince;
+        String outerEventName = eventName;
+        dispatchThread = Thread.currentThread();
+        eventName = event.getClass().getName();
+        busySince = System.nanoTime();
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            // Any nested dispatch has moved the start on to when it ended
+            long since = busySince;
+            long now = System.nanoTime();
+            busySince = outerSince == 0 ? 0 : now;
+            String name = eventName;
+            eventName = outerEventName;
+            if (now - since >= thresholdNanos || recordedSince == since) {
+                stallEnded(since, now - since, name);
+            }
+        }
+    }
+
+    /**
+     * Fill in the length of a stall, recording it now if the watch thread didn't see it in time.
+     */
+    private void stallEnded(long since, long durationNanos, String name) {
+        Metrics.record("edt.stall", durationNanos);
+        synchronized (stalls) {
+            for (Stall stall : stalls) {
+                if (stall.since == since) {
+                    stall.durationNanos = durationNanos;
+                    return;
+                }
+            }
+            Stall stall = new Stall(since, System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(durationNanos),
+                    name, "\n\t(ended before its stack could be taken)");
+            stall.durationNanos = durationNanos;
+            add(stall);
+        }
+    }
+
+    private void watch() {
+        while (true) {
+            try {
+                Thread.sleep(Math.max(1, getThresholdMillis() / 4));
+            } catch (InterruptedException e) {
+                return;
+            }
+            long since = busySince;
+            Thread thread = dispatchThread;
+            if (since == 0 || since == recordedSince || thread == null || System.nanoTime() - since < thresholdNanos) {
+                continue;
+            }
+            StackTraceElement[] stack = thread.getStackTrace();
+            String name = eventName;
+            synchronized (stalls) {
+                // The dispatch thread checks recordedSince after clearing busySince, so either it will fill
+                // in the stall's length or the dispatch has already ended and the stall isn't added
+                recordedSince = since;
+                if (busySince != since) {
+                    continue;
+                }
+                long startMillis = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+                add(new Stall(since, startMillis, name, format(stack)));
+            }
+        }
+    }
+
+    private void add(Stall stall) {
+        if (stalls.size() == MAX_STALLS) {
+            stalls.removeFirst();
+        }
+        stalls.addLast(stall);
+    }
+
+    private static String format(StackTraceElement[] stack) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < Math.min(stack.length, MAX_STACK_FRAMES); i++) {
+            text.append("\n\tat ").append(stack[i]);
+        }
+        if (stack.length > MAX_STACK_FRAMES) {
+            text.append("\n\t... ").append(stack.length - MAX_STACK_FRAMES).append(" more");
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return The stalls recorded, oldest first, as text with their stacks
+     */
+    public List<String> getStalls() {
+        List<String> text = new ArrayList<>();
+        synchronized (stalls) {
+            for (Stall stall : stalls) {
+                text.add(stall.toString());
+            }
+        }
+        return text;
+    }
+
+    public void clearStalls() {
+        synchronized (stalls) {
+            stalls.clear();
+        }
+    }
+}
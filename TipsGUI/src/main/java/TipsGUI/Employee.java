@@ -1,42 +1,71 @@
 package TipsGUI;
-import java.util.ArrayList;
 
+import java.time.LocalDate;
+
+/**
+ * A view of one employee's row in a Ledger.
+ * The view reads the ledger's store and makes its changes through the ledger, so they are recorded like any other;
+ * it is only valid until rows before it are removed.
+ */
 public class Employee {
-    private String name;
-    /**
-     * A list representing the 12 months.
-     * Each element in the array is the number of hours the employee has worked.
-     */
-    private final ArrayList<String> hoursWorkedPerMonth;
+    private final Ledger ledger;
+    private final EmployeeStore store;
+    private final int row;
     private int monthNumber;
 
-    public Employee(String nameInput) {
-        this.name = nameInput;
-        hoursWorkedPerMonth = new ArrayList<String>(12);
+    public Employee(Ledger ledger, int row) {
+        this.ledger = ledger;
+        this.store = ledger.getStore();
+        this.row = row;
+    }
+
+    public int getRow() {
+        return row;
     }
 
     public String getName() {
-        return name;
+        return store.getName(row);
     }
 
     public void setName(String name) {
-        this.name = name;
+        ledger.setName(row, name);
+    }
+
+    /**
+     * Gets the minutes worked in each month of the year shown.
+     * @return A copy of the minutes, January first.
+     */
+    public int[] getMinutesWorkedPerMonth() {
+        int[] minutes = new int[EmployeeStore.MONTHS];
+        for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+            minutes[month - 1] = store.getMinutes(row, month);
+        }
+        return minutes;
+    }
+
+    /**
+     * Get the minutes worked in a specific month.
+     * @return The minutes, or EmployeeStore.INVALID_MINUTES if the month holds an unreadable value.
+     */
+    public int getMonthlyMinutes(int monthNumber) {
+        return store.getMinutes(row, monthNumber);
     }
 
     /**
-     * Gets the list of hours worked in each month of the year.
-     * @return The list.
+     * Set the minutes worked by an employee for a given month.
+     * @param monthNumber The month to set the minutes worked.
+     * @param minutes The minutes worked.
      */
-    public ArrayList<String> getHoursWorkedPerMonth() {
-        return hoursWorkedPerMonth;
+    public void setMonthlyMinutes(int monthNumber, int minutes) {
+        ledger.setMinutes(row, monthNumber, minutes);
     }
 
     /**
      * Get the hours worked in a specific month.
-     * @return The hours as a float.
+     * @return The hours, in the following format: "0h 00m".
      */
     public String getMonthlyHours(int monthNumber) {
-        return hoursWorkedPerMonth.get(monthNumber - 1);
+        return DurationFormat.toText(store.getMinutes(row, monthNumber));
     }
 
     /**
@@ -45,7 +74,43 @@ public class Employee {
      * @param hours The hours worked, in the following format: "0h 00m".
      */
     public void setMonthlyHours(int monthNumber, String hours) {
-        this.hoursWorkedPerMonth.set(monthNumber - 1, hours);
+        ledger.setMinutes(row, monthNumber, DurationFormat.toMinutes(hours));
+    }
+
+    /**
+     * Get the minutes worked on a specific day, in any year.
+     * @param date The day.
+     * @return The minutes.
+     */
+    public int getDailyMinutes(LocalDate date) {
+        return store.getDayMinutes(row, date);
+    }
+
+    /**
+     * Set the minutes worked on a specific day, in any year.
+     * @param date The day.
+     * @param minutes The minutes worked.
+     */
+    public void setDailyMinutes(LocalDate date, int minutes) {
+        ledger.setDayMinutes(row, date, minutes);
+    }
+
+    /**
+     * Get the minutes worked between two days.
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     * @return The minutes.
+     */
+    public long getMinutesBetween(LocalDate from, LocalDate to) {
+        return store.getMinutesBetween(row, from, to);
+    }
+
+    /**
+     * Get the employee's share of the tips.
+     * @return The share in pennies.
+     */
+    public long getTipShare() {
+        return store.getTipShare(row);
     }
 
     /**
@@ -86,4 +151,3 @@ public class Employee {
         return monthNumber;
     }
 }
-
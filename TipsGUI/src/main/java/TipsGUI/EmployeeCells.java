@@ -0,0 +1,19 @@
+package TipsGUI;
+
+/**
+ * A table model whose month and Tip Share cells can be read as numbers, without making their text.
+ */
+public interface EmployeeCells {
+    /**
+     * @param row The model row
+     * @param month The month, 1 to 12, which is also its model column
+     * @return The minutes worked that month, or EmployeeStore.INVALID_MINUTES
+     */
+    int getMinutes(int row, int month);
+
+    /**
+     * @param row The model row
+     * @return The tip share shown, in pennies
+     */
+    long getTipShare(int row);
+}
@@ -0,0 +1,645 @@
+package TipsGUI;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+
+/**
+ * Sorts the employee table and searches it by name without reading its cells as text.
+ * Sorting by a number column uses a primitive key per employee, e.g. their minutes in a month, their total minutes
+ * in the year shown or their tip share. Names are kept lowercased in a sorted array of rows, which sorting by name
+ * uses as it is, and which answers a search for the start of a name with two binary searches.
+ * Keys and names are kept up to date as cells change: a few changed rows are each moved to their new place,
+ * and more are taken out, sorted and merged back in, so neither a search keystroke nor an edit sorts
+ * or parses the whole table again.
+ *
+ * Only the first sort key is used. Rows that sort equally stay in table order.
+ */
+public class EmployeeRowSorter extends RowSorter<EmployeeTableModel> {
+    /** Sorts by the total minutes in the year shown, which has no column of its own. */
+    public static final int TOTAL_MINUTES_COLUMN = EmployeeTableModel.COLUMN_NAMES.length;
+    private static final int INSERTION_SORT_ROWS = 32;
+    /** Up to this many changed rows are moved one at a time rather than merged back in. */
+    private static final int FEW_ROWS = 16;
+
+    private final EmployeeTableModel model;
+    private List<SortKey> sortKeys = Collections.emptyList();
+    private int sortColumn = -1;
+    private boolean descending;
+    private int modelRowCount;
+
+    /** Each row's sort key, while sorted by a number column. */
+    private long[] keys;
+    /** Every row in sort order, or null when unsorted. */
+    private int[] sorted;
+
+    /** Each row's name in lower case, and every row in order of them, while sorting or searching by name. */
+    private String[] lowerNames;
+    private int[] nameOrder;
+    /** The start of the names shown, in lower case, or "" to show everyone. */
+    private String prefix = "";
+
+    /** The rows shown, in order, or null when every row is shown in table order. */
+    private int[] viewToModel;
+    /** Each row's place in viewToModel, or -1 if it isn't shown; made when first needed. */
+    private int[] modelToView;
+
+    private final IntBinaryOperator compareKeys = (a, b) -> {
+        int order = descending ? Long.compare(keys[b], keys[a]) : Long.compare(keys[a], keys[b]);
+        return order != 0 ? order : Integer.compare(a, b);
+    };
+    private final IntBinaryOperator compareNames = (a, b) -> {
+        int order = lowerNames[a].compareTo(lowerNames[b]);
+        return order != 0 ? order : Integer.compare(a, b);
+    };
+
+    /**
+     * @param model The table to sort, which starts unsorted
+     */
+    public EmployeeRowSorter(EmployeeTableModel model) {
+        this.model = model;
+        modelRowCount = model.getRowCount();
+    }
+
+    @Override
+    public EmployeeTableModel getModel() {
+        return model;
+    }
+
+    /**
+     * Show only employees whose names start with some text, ignoring case.
+     * @param text The start of the name, or "" or null to show everyone
+     */
+    public void setNamePrefix(String text) {
+        String newPrefix = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        if (newPrefix.equals(prefix)) {
+            return;
+        }
+        int[] lastViewToModel = viewToModel;
+        int lastViewRowCount = getViewRowCount();
+        prefix = newPrefix;
+        updateNames();
+        showRows();
+        fireSorted(lastViewToModel, lastViewRowCount);
+    }
+
+    public String getNamePrefix() {
+        return prefix;
+    }
+
+    /**
+     * Sort by a column, ascending, or descending if it is already sorted ascending.
+     * @param column The model column, or TOTAL_MINUTES_COLUMN
+     */
+    @Override
+    public void toggleSortOrder(int column) {
+        SortOrder order = sortColumn == column && !descending ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+        setSortKeys(Collections.singletonList(new SortKey(column, order)));
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    /**
+     * @param keys The keys to sort by, of which only the first is used; null or empty for table order
+     */
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> newKeys = keys == null || keys.isEmpty()
+                ? Collections.<SortKey>emptyList()
+                : Collections.unmodifiableList(new ArrayList<SortKey>(keys));
+        for (SortKey key : newKeys) {
+            if (key.getColumn() < 0 || key.getColumn() > TOTAL_MINUTES_COLUMN) {
+                throw new IllegalArgumentException("No such column to sort by: " + key.getColumn());
+            }
+        }
+        if (newKeys.equals(sortKeys)) {
+            return;
+        }
+        int[] lastViewToModel = viewToModel;
+        int lastViewRowCount = getViewRowCount();
+        sortKeys = newKeys;
+        SortKey first = newKeys.isEmpty() ? null : newKeys.get(0);
+        sortColumn = first == null || first.getSortOrder() == SortOrder.UNSORTED ? -1 : first.getColumn();
+        descending = first != null && first.getSortOrder() == SortOrder.DESCENDING;
+        fireSortOrderChanged();
+        updateNames();
+        sortAll();
+        showRows();
+        fireSorted(lastViewToModel, lastViewRowCount);
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (index < 0 || index >= getViewRowCount()) {
+            throw new IndexOutOfBoundsException("Invalid index");
+        }
+        return viewToModel == null ? index : viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (index < 0 || index >= modelRowCount) {
+            throw new IndexOutOfBoundsException("Invalid index");
+        }
+        if (viewToModel == null) {
+            return index;
+        }
+        if (modelToView == null) {
+            modelToView = new int[modelRowCount];
+            Arrays.fill(modelToView, -1);
+            for (int view = 0; view < viewToModel.length; view++) {
+                modelToView[viewToModel[view]] = view;
+            }
+        }
+        return modelToView[index];
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewToModel == null ? modelRowCount : viewToModel.length;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return modelRowCount;
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        allRowsChanged();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        int[] lastViewToModel = viewToModel;
+        int lastViewRowCount = getViewRowCount();
+        modelRowCount = model.getRowCount();
+        lowerNames = null;
+        nameOrder = null;
+        updateNames();
+        sortAll();
+        showRows();
+        if (lastViewToModel != null || viewToModel != null) {
+            fireSorted(lastViewToModel, lastViewRowCount);
+        }
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        if (firstRow < 0 || firstRow > modelRowCount || endRow < firstRow) {
+            throw new IndexOutOfBoundsException("Invalid range");
+        }
+        int[] lastViewToModel = viewToModel;
+        int lastViewRowCount = getViewRowCount();
+        int count = endRow - firstRow + 1;
+        modelRowCount += count;
+        if (nameOrder != null) {
+            lowerNames = insertGap(lowerNames, firstRow, count);
+            readNames(firstRow, endRow);
+            nameOrder = mergeIn(shift(nameOrder, firstRow, count), firstRow, endRow, compareNames);
+        }
+        if (keys != null) {
+            long[] newKeys = new long[modelRowCount];
+            System.arraycopy(keys, 0, newKeys, 0, firstRow);
+            System.arraycopy(keys, firstRow, newKeys, endRow + 1, keys.length - firstRow);
+            keys = newKeys;
+            readKeys(firstRow, endRow);
+            sorted = mergeIn(shift(sorted, firstRow, count), firstRow, endRow, compareKeys);
+        } else if (sortColumn == EmployeeTableModel.NAME_COLUMN) {
+            sorted = byName();
+        }
+        showRows();
+        if (lastViewToModel != null || viewToModel != null) {
+            fireSorted(lastViewToModel, lastViewRowCount);
+        }
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        checkRows(firstRow, endRow, modelRowCount - 1);
+        int[] lastViewToModel = viewToModel;
+        int lastViewRowCount = getViewRowCount();
+        int count = endRow - firstRow + 1;
+        modelRowCount -= count;
+        if (nameOrder != null) {
+            String[] newNames = new String[modelRowCount];
+            System.arraycopy(lowerNames, 0, newNames, 0, firstRow);
+            System.arraycopy(lowerNames, endRow + 1, newNames, firstRow, modelRowCount - firstRow);
+            lowerNames = newNames;
+            nameOrder = without(nameOrder, firstRow, endRow, count);
+        }
+        if (keys != null) {
+            long[] newKeys = new long[modelRowCount];
+            System.arraycopy(keys, 0, newKeys, 0, firstRow);
+            System.arraycopy(keys, endRow + 1, newKeys, firstRow, modelRowCount - firstRow);
+            keys = newKeys;
+            sorted = without(sorted, firstRow, endRow, count);
+        } else if (sortColumn == EmployeeTableModel.NAME_COLUMN) {
+            sorted = byName();
+        }
+        showRows();
+        if (lastViewToModel != null || viewToModel != null) {
+            fireSorted(lastViewToModel, lastViewRowCount);
+        }
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        rowsUpdated(firstRow, endRow, TableModelEvent.ALL_COLUMNS);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        checkRows(firstRow, endRow, modelRowCount - 1);
+        boolean allColumns = column == TableModelEvent.ALL_COLUMNS;
+        boolean namesChanged = nameOrder != null && (allColumns || column == EmployeeTableModel.NAME_COLUMN);
+        boolean keysChanged = keys != null && (allColumns || column == sortColumn
+                || sortColumn == TOTAL_MINUTES_COLUMN && EmployeeTableModel.isMonthColumn(column));
+        if (!namesChanged && !keysChanged) {
+            return;
+        }
+        int[] lastViewToModel = viewToModel;
+        int lastViewRowCount = getViewRowCount();
+        boolean fewRows = endRow - firstRow < FEW_ROWS;
+        if (namesChanged) {
+            if (fewRows) {
+                nameOrder = moveRows(nameOrder, firstRow, endRow, compareNames, row -> readNames(row, row));
+            } else {
+                readNames(firstRow, endRow);
+                nameOrder = mergeIn(without(nameOrder, firstRow, endRow, 0), firstRow, endRow, compareNames);
+            }
+            if (sortColumn == EmployeeTableModel.NAME_COLUMN) {
+                sorted = byName();
+            }
+        }
+        if (keysChanged) {
+            if (fewRows) {
+                sorted = moveRows(sorted, firstRow, endRow, compareKeys, row -> readKeys(row, row));
+            } else if (endRow - firstRow + 1 < modelRowCount) {
+                readKeys(firstRow, endRow);
+                sorted = mergeIn(without(sorted, firstRow, endRow, 0), firstRow, endRow, compareKeys);
+            } else {
+                readKeys(firstRow, endRow);
+                if (!isInOrder(sorted, compareKeys)) {
+                    // e.g. every tip share changing at once, which mostly leaves them in the same order
+                    sorted = sortByKeys();
+                }
+            }
+        }
+        showRows();
+        if (!Arrays.equals(lastViewToModel, viewToModel)) {
+            fireSorted(lastViewToModel, lastViewRowCount);
+        }
+    }
+
+    private static void checkRows(int firstRow, int endRow, int lastRow) {
+        if (firstRow < 0 || endRow < firstRow || endRow > lastRow) {
+            throw new IndexOutOfBoundsException("Invalid range");
+        }
+    }
+
+    /**
+     * Make the name index if searching or sorting by name needs it, and let it go otherwise.
+     */
+    private void updateNames() {
+        if (prefix.isEmpty() && sortColumn != EmployeeTableModel.NAME_COLUMN) {
+            lowerNames = null;
+            nameOrder = null;
+        } else if (nameOrder == null) {
+            lowerNames = new String[modelRowCount];
+            readNames(0, modelRowCount - 1);
+            nameOrder = identity(modelRowCount);
+            sortRows(nameOrder, compareNames);
+        }
+    }
+
+    private void readNames(int firstRow, int endRow) {
+        EmployeeStore store = model.getStore();
+        for (int row = firstRow; row <= endRow; row++) {
+            String name = store.getName(row);
+            lowerNames[row] = name == null ? "" : name.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Sort every row again, after the sort keys or the whole table changed.
+     */
+    private void sortAll() {
+        keys = null;
+        sorted = null;
+        if (sortColumn == EmployeeTableModel.NAME_COLUMN) {
+            sorted = byName();
+        } else if (sortColumn >= 0) {
+            keys = new long[modelRowCount];
+            if (sortColumn == TOTAL_MINUTES_COLUMN) {
+                model.getStore().getMinutesInRange(1, EmployeeStore.MONTHS, keys);
+            } else {
+                readKeys(0, modelRowCount - 1);
+            }
+            sorted = sortByKeys();
+        }
+    }
+
+    /**
+     * Sort every row by its key. When the keys span less than 2^31, each is packed above its row into a long,
+     * so a primitive sort of longs does the work; otherwise the rows are merge sorted.
+     */
+    private int[] sortByKeys() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (long key : keys) {
+            min = Math.min(min, key);
+            max = Math.max(max, key);
+        }
+        int[] rows = identity(modelRowCount);
+        if (modelRowCount == 0) {
+            return rows;
+        }
+        long span = max - min;
+        // Packed keys must stay below the sign bit, or the signed sort would put the largest first
+        if (span < 0 || span >= 1L << 31) {
+            sortRows(rows, compareKeys);
+            return rows;
+        }
+        long[] packed = new long[modelRowCount];
+        for (int row = 0; row < packed.length; row++) {
+            packed[row] = (descending ? max - keys[row] : keys[row] - min) << 32 | row;
+        }
+        Arrays.sort(packed);
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = (int) packed[i];
+        }
+        return rows;
+    }
+
+    private void readKeys(int firstRow, int endRow) {
+        EmployeeStore store = model.getStore();
+        for (int row = firstRow; row <= endRow; row++) {
+            if (sortColumn == TOTAL_MINUTES_COLUMN) {
+                keys[row] = store.getMinutesInRange(row, 1, EmployeeStore.MONTHS);
+            } else if (sortColumn == EmployeeTableModel.TIP_SHARE_COLUMN) {
+                keys[row] = model.getTipShare(row);
+            } else {
+                keys[row] = model.getMinutes(row, sortColumn);
+            }
+        }
+    }
+
+    private int[] byName() {
+        return descending ? reversedNames(0, nameOrder.length) : nameOrder;
+    }
+
+    /**
+     * Part of nameOrder backwards, with rows of the same name still in table order.
+     */
+    private int[] reversedNames(int from, int to) {
+        int[] rows = new int[to - from];
+        int i = 0;
+        int end = to;
+        while (end > from) {
+            int start = end - 1;
+            while (start > from && lowerNames[nameOrder[start - 1]].equals(lowerNames[nameOrder[end - 1]])) {
+                start--;
+            }
+            System.arraycopy(nameOrder, start, rows, i, end - start);
+            i += end - start;
+            end = start;
+        }
+        return rows;
+    }
+
+    /**
+     * Work out the rows shown from the sort order and the name searched for.
+     */
+    private void showRows() {
+        modelToView = null;
+        if (prefix.isEmpty()) {
+            viewToModel = sorted;
+            return;
+        }
+        int from = firstNameFrom(prefix);
+        int to = firstNameFrom(prefix + Character.MAX_VALUE);
+        int[] rows;
+        if (sortColumn == EmployeeTableModel.NAME_COLUMN) {
+            // The matching names are already together, in order
+            viewToModel = descending ? reversedNames(from, to) : Arrays.copyOfRange(nameOrder, from, to);
+            return;
+        }
+        rows = new int[to - from];
+        if (sorted == null) {
+            System.arraycopy(nameOrder, from, rows, 0, rows.length);
+            Arrays.sort(rows);
+        } else {
+            boolean[] matches = new boolean[modelRowCount];
+            for (int i = from; i < to; i++) {
+                matches[nameOrder[i]] = true;
+            }
+            int count = 0;
+            for (int row : sorted) {
+                if (matches[row]) {
+                    rows[count++] = row;
+                }
+            }
+        }
+        viewToModel = rows;
+    }
+
+    /**
+     * @return The place in nameOrder of the first name that isn't before the text
+     */
+    private int firstNameFrom(String text) {
+        int low = 0;
+        int high = nameOrder.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lowerNames[nameOrder[middle]].compareTo(text) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Tell listeners the rows shown have changed.
+     * @param lastViewToModel The rows shown before, or null if they were every row in table order
+     */
+    private void fireSorted(int[] lastViewToModel, int lastViewRowCount) {
+        fireRowSorterChanged(lastViewToModel != null ? lastViewToModel : identity(lastViewRowCount));
+    }
+
+    private static int[] identity(int count) {
+        int[] rows = new int[count];
+        for (int row = 0; row < count; row++) {
+            rows[row] = row;
+        }
+        return rows;
+    }
+
+    private static String[] insertGap(String[] values, int at, int count) {
+        String[] newValues = new String[values.length + count];
+        System.arraycopy(values, 0, newValues, 0, at);
+        System.arraycopy(values, at, newValues, at + count, values.length - at);
+        return newValues;
+    }
+
+    /**
+     * Renumber the rows in an ordering after rows have been inserted before them.
+     */
+    private static int[] shift(int[] order, int firstRow, int count) {
+        int[] shifted = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            shifted[i] = order[i] >= firstRow ? order[i] + count : order[i];
+        }
+        return shifted;
+    }
+
+    /**
+     * Take a range of rows out of an ordering.
+     * @param shift How much to renumber the rows after the range by, e.g. the number of rows deleted
+     */
+    private static int[] without(int[] order, int firstRow, int endRow, int shift) {
+        int[] rest = new int[order.length - (endRow - firstRow + 1)];
+        int count = 0;
+        for (int row : order) {
+            if (row < firstRow) {
+                rest[count++] = row;
+            } else if (row > endRow) {
+                rest[count++] = row - shift;
+            }
+        }
+        return rest;
+    }
+
+    /**
+     * Sort a range of rows and merge them into an ordering that doesn't hold them.
+     */
+    private static int[] mergeIn(int[] order, int firstRow, int endRow, IntBinaryOperator compare) {
+        int[] added = new int[endRow - firstRow + 1];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = firstRow + i;
+        }
+        sortRows(added, compare);
+        int[] merged = new int[order.length + added.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.length; k++) {
+            if (j == added.length || i < order.length && compare.applyAsInt(order[i], added[j]) < 0) {
+                merged[k] = order[i++];
+            } else {
+                merged[k] = added[j++];
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Move each of a range of rows to its new place in a copy of an ordering, one at a time.
+     * @param update Reads a row's new key, after it has been found by its old one
+     */
+    private static int[] moveRows(int[] order, int firstRow, int endRow, IntBinaryOperator compare, IntConsumer update) {
+        int[] moved = order.clone();
+        for (int row = firstRow; row <= endRow; row++) {
+            int from = indexOf(moved, row, compare);
+            update.accept(row);
+            // Where the row goes among the others, as if it had already been taken out
+            int low = 0;
+            int high = moved.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare.applyAsInt(moved[middle < from ? middle : middle + 1], row) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            if (low >= from) {
+                System.arraycopy(moved, from + 1, moved, from, low - from);
+            } else {
+                System.arraycopy(moved, low, moved, low + 1, from - low);
+            }
+            moved[low] = row;
+        }
+        return moved;
+    }
+
+    /**
+     * Find a row in an ordering by binary search; every row compares unequal to every other.
+     */
+    private static int indexOf(int[] order, int row, IntBinaryOperator compare) {
+        int low = 0;
+        int high = order.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare.applyAsInt(order[middle], row);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        throw new IllegalStateException("Row " + row + " is missing from the sort order");
+    }
+
+    private static boolean isInOrder(int[] rows, IntBinaryOperator compare) {
+        for (int i = 1; i < rows.length; i++) {
+            if (compare.applyAsInt(rows[i - 1], rows[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sort rows with a merge sort of primitive ints, so nothing is boxed.
+     */
+    private static void sortRows(int[] rows, IntBinaryOperator compare) {
+        if (rows.length > 1) {
+            mergeSort(rows, new int[rows.length / 2 + 1], 0, rows.length, compare);
+        }
+    }
+
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to, IntBinaryOperator compare) {
+        if (to - from <= INSERTION_SORT_ROWS) {
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= from && compare.applyAsInt(rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, middle, compare);
+        mergeSort(rows, buffer, middle, to, compare);
+        if (compare.applyAsInt(rows[middle - 1], rows[middle]) <= 0) {
+            return;
+        }
+        // Merge the left half, moved aside, with the right half in place
+        int leftCount = middle - from;
+        System.arraycopy(rows, from, buffer, 0, leftCount);
+        int i = 0;
+        int j = middle;
+        int k = from;
+        while (i < leftCount && j < to) {
+            rows[k++] = compare.applyAsInt(rows[j], buffer[i]) < 0 ? rows[j++] : buffer[i++];
+        }
+        System.arraycopy(buffer, i, rows, k, leftCount - i);
+    }
+}
@@ -0,0 +1,859 @@
+package TipsGUI;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Column-oriented storage for the employee table.
+ * Names and tip shares each have their own array, and every month has its own int[] of minutes worked,
+ * so a roster costs a fixed number of arrays rather than one String object per cell.
+ * Each employee also has running totals of their months, so the time worked in any month range is a subtraction.
+ * Every employee has an id that stays the same as rows around them are added and removed, and is never reused.
+ * Employees can be found by id or by name through hash indexes, built the first time they are needed
+ * and kept up to date as rows are added and renamed; removing a row drops them, to be built again when next used.
+ *
+ * The month columns are the months of one year, the year shown. An employee with time recorded day by day,
+ * or in other years, also has a TimeSeries, whose month totals for the year shown the columns are kept equal to.
+ * Employees who only ever had whole months in one year have no series, so a large roster costs no more than before.
+ *
+ * The columns are split into pages of up to PAGE_ROWS rows, which are shared between a store and its snapshots
+ * and copies. A page is only copied when a store writes to it while it is shared, so a snapshot costs a few pointers
+ * per page however many employees there are, and never changes afterwards. A snapshot can be read from any thread
+ * while the store it came from goes on being written. The series are shared along with their pages, and a series
+ * is only copied when its employee's time is changed on a page that doesn't own it.
+ *
+ * Removing a row only shifts the rows after it on its own page, so pages may hold fewer than PAGE_ROWS rows;
+ * each store keeps the first row of every page, and a page that gets too short is merged into its neighbour.
+ */
+public class EmployeeStore {
+    public static final int MONTHS = 12;
+    /** Stored in a month cell whose text could not be read as a duration. */
+    public static final int INVALID_MINUTES = -1;
+    /** Asks for a new id to be given to an employee being added. */
+    public static final long NO_ID = 0;
+
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_ROWS = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_ROWS - 1;
+    private static final int DEFAULT_CAPACITY = 16;
+    /** Each store writes only to the pages marked with its current generation, which no other store ever has. */
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    /**
+     * The columns of up to PAGE_ROWS employees.
+     */
+    private static final class Page {
+        final long generation;
+        /** The number of rows held, from index 0. */
+        int size;
+        long[] ids;
+        String[] names;
+        /** minutes[month - 1][index] is the time worked by an employee in that month. */
+        final int[][] minutes = new int[MONTHS][];
+        /** cumulativeMinutes[month - 1][index] is the time worked from January up to and including that month. */
+        final long[][] cumulativeMinutes = new long[MONTHS][];
+        /** Each employee's share of the tips, in pennies. */
+        long[] tipShares;
+        /** Each employee's days and other years, or null while all their time is in the month columns. */
+        TimeSeries[] series;
+        /** True where the series is this page's own to change; otherwise another page may still hold it. */
+        boolean[] ownsSeries;
+
+        Page(long generation, int capacity) {
+            this.generation = generation;
+            ids = new long[capacity];
+            names = new String[capacity];
+            for (int month = 0; month < MONTHS; month++) {
+                minutes[month] = new int[capacity];
+                cumulativeMinutes[month] = new long[capacity];
+            }
+            tipShares = new long[capacity];
+            series = new TimeSeries[capacity];
+            ownsSeries = new boolean[capacity];
+        }
+
+        /**
+         * Copy a shared page for a store to write to.
+         */
+        Page(Page page, long generation) {
+            this.generation = generation;
+            size = page.size;
+            ids = page.ids.clone();
+            names = page.names.clone();
+            for (int month = 0; month < MONTHS; month++) {
+                minutes[month] = page.minutes[month].clone();
+                cumulativeMinutes[month] = page.cumulativeMinutes[month].clone();
+            }
+            tipShares = page.tipShares.clone();
+            // The series stay shared until they are written to
+            series = page.series.clone();
+            ownsSeries = new boolean[series.length];
+        }
+
+        int capacity() {
+            return ids.length;
+        }
+
+        void grow(int capacity) {
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            for (int month = 0; month < MONTHS; month++) {
+                minutes[month] = Arrays.copyOf(minutes[month], capacity);
+                cumulativeMinutes[month] = Arrays.copyOf(cumulativeMinutes[month], capacity);
+            }
+            tipShares = Arrays.copyOf(tipShares, capacity);
+            series = Arrays.copyOf(series, capacity);
+            ownsSeries = Arrays.copyOf(ownsSeries, capacity);
+        }
+
+        /**
+         * Copy rows from another page over rows of this one, e.g. to shift them along.
+         */
+        void copyRows(Page from, int fromIndex, int toIndex, int count) {
+            System.arraycopy(from.ids, fromIndex, ids, toIndex, count);
+            System.arraycopy(from.names, fromIndex, names, toIndex, count);
+            for (int month = 0; month < MONTHS; month++) {
+                System.arraycopy(from.minutes[month], fromIndex, minutes[month], toIndex, count);
+                System.arraycopy(from.cumulativeMinutes[month], fromIndex, cumulativeMinutes[month], toIndex, count);
+            }
+            System.arraycopy(from.tipShares, fromIndex, tipShares, toIndex, count);
+            System.arraycopy(from.series, fromIndex, series, toIndex, count);
+            if (from.generation == generation) {
+                System.arraycopy(from.ownsSeries, fromIndex, ownsSeries, toIndex, count);
+            } else {
+                // Series from a page another store may hold stay shared with it
+                Arrays.fill(ownsSeries, toIndex, toIndex + count, false);
+            }
+        }
+    }
+
+    private Page[] pages;
+    /** The number of pages in use; only a store with no rows has an empty one. */
+    private int pageCount;
+    /** pageStarts[p] is the row the first employee on page p is at. */
+    private int[] pageStarts;
+    /** The page the last row looked up was on. Only a hint, so threads reading a snapshot may race on it. */
+    private int lastPageFound;
+    private long generation = GENERATIONS.incrementAndGet();
+    private final boolean readOnly;
+    private long nextId = 1;
+    private int year = LocalDate.now().getYear();
+    private int rowCount;
+    /** Null until first needed; a snapshot may build them on any thread, so they are only ever swapped in whole. */
+    private volatile IdIndex idIndex;
+    private volatile NameIndex nameIndex;
+
+    public EmployeeStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public EmployeeStore(int initialCapacity) {
+        pages = new Page[1];
+        pageStarts = new int[1];
+        readOnly = false;
+        ensureCapacity(Math.max(initialCapacity, 1));
+    }
+
+    /**
+     * Share another store's pages.
+     */
+    private EmployeeStore(EmployeeStore store, boolean readOnly) {
+        pages = Arrays.copyOf(store.pages, Math.max(store.pageCount, 1));
+        pageStarts = Arrays.copyOf(store.pageStarts, pages.length);
+        pageCount = store.pageCount;
+        this.readOnly = readOnly;
+        nextId = store.nextId;
+        year = store.year;
+        rowCount = store.rowCount;
+        // From now on the store copies a page before writing to it, leaving this one as it was
+        store.generation = GENERATIONS.incrementAndGet();
+    }
+
+    /**
+     * Copy the store, e.g. to go on editing a table restored from a snapshot.
+     * Nothing is copied straight away: each page is copied the first time either store writes to it.
+     * Must be called on the thread writing this store.
+     * @return A store holding the same rows, which later changes to this one won't touch
+     */
+    public EmployeeStore copy() {
+        return new EmployeeStore(this, false);
+    }
+
+    /**
+     * Take a snapshot of the store, e.g. so a background task can read it while the table goes on being edited.
+     * Taking it costs a few pointers per page, and it can be read from any thread once handed over.
+     * Must be called on the thread writing this store.
+     * @return A store holding the same rows that never changes; writing to it throws an IllegalStateException
+     */
+    public EmployeeStore snapshot() {
+        return new EmployeeStore(this, true);
+    }
+
+    /**
+     * Make the store hold the same rows as another, e.g. a snapshot taken before changes that are being undone.
+     * As with copy, nothing is copied straight away: the pages are shared, and each is copied the first time
+     * either store writes to it. Ids given out since are still never given out again.
+     * Must be called on the thread writing this store.
+     * @param from The store to take the rows from, normally a snapshot
+     */
+    public void restore(EmployeeStore from) {
+        checkWritable();
+        pages = Arrays.copyOf(from.pages, Math.max(from.pageCount, 1));
+        pageStarts = Arrays.copyOf(from.pageStarts, pages.length);
+        pageCount = from.pageCount;
+        rowCount = from.rowCount;
+        year = from.year;
+        nextId = Math.max(nextId, from.nextId);
+        generation = GENERATIONS.incrementAndGet();
+        from.generation = GENERATIONS.incrementAndGet();
+        idIndex = null;
+        nameIndex = null;
+    }
+
+    /**
+     * @return True for a snapshot, which can't be written
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Find the page holding a row: straight from the row while every page but the last is full,
+     * otherwise by a binary search of the pages' first rows.
+     */
+    private int pageOf(int row) {
+        int last = pageCount - 1;
+        if (pageStarts[last] == last << PAGE_SHIFT) {
+            return row >>> PAGE_SHIFT;
+        }
+        // Rows are mostly read in order, so try the page the last one was on and the one after it first
+        int p = lastPageFound;
+        if (p < last && row >= pageStarts[p + 1]) {
+            p++;
+        }
+        if (p <= last && row >= pageStarts[p] && (p == last || row < pageStarts[p + 1])) {
+            lastPageFound = p;
+            return p;
+        }
+        int low = 0;
+        int high = last;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (pageStarts[mid] <= row) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        lastPageFound = low;
+        return low;
+    }
+
+    /**
+     * A page of the store, copied first if it is shared with another store.
+     * @param index The page's index
+     */
+    private Page writablePage(int index) {
+        checkWritable();
+        Page page = pages[index];
+        if (page.generation != generation) {
+            page = new Page(page, generation);
+            pages[index] = page;
+        }
+        return page;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("A snapshot can't be changed");
+        }
+    }
+
+    /**
+     * Make sure the store can hold the given number of rows without growing again.
+     * Rows that don't fit on the last page go on new pages of PAGE_ROWS, which are started as they are needed.
+     * @param capacity The number of rows needed
+     */
+    public void ensureCapacity(int capacity) {
+        checkWritable();
+        if (pageCount == 0) {
+            pages[0] = new Page(generation, Math.min(PAGE_ROWS, capacity));
+            pageStarts[0] = 0;
+            pageCount = 1;
+        }
+        int last = pageCount - 1;
+        int lastRows = Math.min(PAGE_ROWS, capacity - pageStarts[last]);
+        if (pages[last].capacity() < lastRows) {
+            Page page = writablePage(last);
+            page.grow(Math.min(PAGE_ROWS, Math.max(lastRows, page.capacity() + (page.capacity() >> 1))));
+        }
+        int neededPages = pageCount + Math.max(0, capacity - pageStarts[last] - PAGE_ROWS + PAGE_MASK) / PAGE_ROWS;
+        if (pages.length < neededPages) {
+            pages = Arrays.copyOf(pages, Math.max(neededPages, pages.length + (pages.length >> 1)));
+            pageStarts = Arrays.copyOf(pageStarts, pages.length);
+        }
+    }
+
+    /**
+     * The page the next row added goes on: the last one, or a new one once that is full.
+     * @return The page's index
+     */
+    private int appendPage() {
+        ensureCapacity(rowCount + 1);
+        if (pages[pageCount - 1].size < PAGE_ROWS) {
+            return pageCount - 1;
+        }
+        pages[pageCount] = new Page(generation, PAGE_ROWS);
+        pageStarts[pageCount] = rowCount;
+        return pageCount++;
+    }
+
+    /**
+     * Append an employee to the end of the store.
+     * @param name The employee's name
+     * @param monthlyMinutes The minutes worked in each month of the year shown, January first; may be null for an empty row
+     * @param tipShare The employee's tip share in pennies
+     * @return The row the employee was stored at
+     */
+    public int addRow(String name, int[] monthlyMinutes, long tipShare) {
+        return addRow(NO_ID, name, monthlyMinutes, tipShare);
+    }
+
+    /**
+     * Append an employee with a known id to the end of the store, e.g. when restoring a saved table.
+     * @param id The employee's id, or NO_ID to give them a new one
+     * @param name The employee's name
+     * @param monthlyMinutes The minutes worked in each month of the year shown, January first; may be null for an empty row
+     * @param tipShare The employee's tip share in pennies
+     * @return The row the employee was stored at
+     */
+    public int addRow(long id, String name, int[] monthlyMinutes, long tipShare) {
+        Page page = writablePage(appendPage());
+        int index = page.size++;
+        page.ids[index] = assignId(id);
+        page.names[index] = name;
+        for (int month = 0; month < MONTHS; month++) {
+            page.minutes[month][index] = monthlyMinutes == null ? 0 : monthlyMinutes[month];
+        }
+        updateCumulativeMinutes(page, index, 1);
+        page.tipShares[index] = tipShare;
+        int row = rowCount++;
+        indexRow(row);
+        return row;
+    }
+
+    /**
+     * Append a copy of an employee in another store, keeping their id, days and other years.
+     * Their series is shared with the other store until either changes it.
+     * @param from The store holding the employee
+     * @param fromRow The employee's row in that store
+     * @return The row the employee was stored at
+     */
+    public int addRow(EmployeeStore from, int fromRow) {
+        int[] monthlyMinutes = new int[MONTHS];
+        for (int month = 1; month <= MONTHS; month++) {
+            monthlyMinutes[month - 1] = from.getMinutes(fromRow, month);
+        }
+        int row = addRow(from.getId(fromRow), from.getName(fromRow), monthlyMinutes, from.getTipShare(fromRow));
+        int p = pageCount - 1;
+        writablePage(p).series[row - pageStarts[p]] = from.getSeries(fromRow);
+        return row;
+    }
+
+    /**
+     * Append every employee in a batch to the end of the store.
+     * @param batch The employees to add
+     * @return The row the first employee was stored at
+     */
+    public int addRows(RowBatch batch) {
+        int count = batch.size();
+        ensureCapacity(rowCount + count);
+        int firstRow = rowCount;
+        for (int i = 0; i < count; i++) {
+            Page page = writablePage(appendPage());
+            int index = page.size++;
+            page.ids[index] = assignId(batch.getId(i));
+            page.names[index] = batch.getName(i);
+            page.tipShares[index] = batch.getTipShare(i);
+            for (int month = 1; month <= MONTHS; month++) {
+                page.minutes[month - 1][index] = batch.getMinutes(i, month);
+            }
+            updateCumulativeMinutes(page, index, 1);
+            rowCount++;
+        }
+        for (int row = firstRow; row < rowCount; row++) {
+            indexRow(row);
+        }
+        return firstRow;
+    }
+
+    /**
+     * Remove an employee, shifting every later row up by one.
+     * Only the rows after it on its own page are moved; later pages are left as they were, still shared with
+     * any snapshot, and just start a row earlier.
+     * @param row The row to remove
+     */
+    public void removeRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+        }
+        int p = pageOf(row);
+        Page page = writablePage(p);
+        int index = row - pageStarts[p];
+        page.copyRows(page, index + 1, index, page.size - index - 1);
+        page.size--;
+        page.names[page.size] = null;
+        page.series[page.size] = null;
+        page.ownsSeries[page.size] = false;
+        rowCount--;
+        for (int later = p + 1; later < pageCount; later++) {
+            pageStarts[later]--;
+        }
+
+        if (page.size == 0 && pageCount > 1) {
+            removePage(p);
+        } else if (page.size < PAGE_ROWS / 4) {
+            // Keep short pages from piling up, so looking a row up stays quick
+            if (p + 1 < pageCount && page.size + pages[p + 1].size <= PAGE_ROWS) {
+                mergeNextPage(p);
+            } else if (p > 0 && pages[p - 1].size + page.size <= PAGE_ROWS) {
+                mergeNextPage(p - 1);
+            }
+        }
+        // Every later row has moved
+        idIndex = null;
+        nameIndex = null;
+    }
+
+    /**
+     * Move the rows of the page after one onto the end of it, and drop the page they were on.
+     * @param p The index of the page to move them to
+     */
+    private void mergeNextPage(int p) {
+        Page page = writablePage(p);
+        Page next = pages[p + 1];
+        if (page.capacity() < page.size + next.size) {
+            page.grow(PAGE_ROWS);
+        }
+        page.copyRows(next, 0, page.size, next.size);
+        page.size += next.size;
+        removePage(p + 1);
+    }
+
+    private void removePage(int p) {
+        System.arraycopy(pages, p + 1, pages, p, pageCount - p - 1);
+        System.arraycopy(pageStarts, p + 1, pageStarts, p, pageCount - p - 1);
+        pages[--pageCount] = null;
+    }
+
+    /**
+     * Remove every employee at once.
+     * The pages are let go rather than emptied, so clearing costs nothing per row and leaves snapshots as they were.
+     */
+    public void clear() {
+        checkWritable();
+        Arrays.fill(pages, null);
+        pageCount = 0;
+        rowCount = 0;
+        idIndex = null;
+        nameIndex = null;
+        ensureCapacity(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Give an employee being added their id, making sure it is never given out again.
+     */
+    private long assignId(long id) {
+        if (id == NO_ID) {
+            return nextId++;
+        }
+        nextId = Math.max(nextId, id + 1);
+        return id;
+    }
+
+    public long getId(int row) {
+        int p = pageOf(row);
+        return pages[p].ids[row - pageStarts[p]];
+    }
+
+    /**
+     * Find an employee by id, in constant time once the index is built.
+     * @param id The employee's id
+     * @return The employee's row, or -1 if no employee has that id
+     */
+    public int findRow(long id) {
+        IdIndex index = idIndex;
+        if (index == null) {
+            index = IdIndex.of(this);
+            idIndex = index;
+        }
+        return index.find(id);
+    }
+
+    /**
+     * Find an employee by name, in constant time once the index is built.
+     * @param name The employee's name
+     * @param occurrence Which of the employees with that name to find, counting from 0 in row order
+     * @return The employee's row, or -1 if fewer employees have that name
+     */
+    public int findRow(String name, int occurrence) {
+        NameIndex index = nameIndex;
+        if (index == null) {
+            index = NameIndex.of(this);
+            nameIndex = index;
+        }
+        return index.find(name, occurrence);
+    }
+
+    /**
+     * Add a row just stored to whichever indexes are built.
+     */
+    private void indexRow(int row) {
+        if (idIndex != null) {
+            idIndex.add(getId(row), row);
+        }
+        if (nameIndex != null) {
+            nameIndex.add(getName(row), row);
+        }
+    }
+
+    /**
+     * @return The id the next new employee will be given
+     */
+    public long getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Make sure no id below the given one is given out, e.g. to employees that were saved and since removed.
+     * @param nextId The lowest id new employees may be given
+     */
+    public void reserveIds(long nextId) {
+        checkWritable();
+        this.nextId = Math.max(this.nextId, nextId);
+    }
+
+    public String getName(int row) {
+        int p = pageOf(row);
+        return pages[p].names[row - pageStarts[p]];
+    }
+
+    public void setName(int row, String name) {
+        int p = pageOf(row);
+        Page page = writablePage(p);
+        int index = row - pageStarts[p];
+        if (nameIndex != null) {
+            nameIndex.rename(row, page.names[index], name);
+        }
+        page.names[index] = name;
+    }
+
+    /**
+     * Get the minutes worked in a month of the year shown.
+     * @param row The employee's row
+     * @param month The month number, 1 to 12
+     * @return The minutes worked, or INVALID_MINUTES if the cell holds an unreadable value
+     */
+    public int getMinutes(int row, int month) {
+        int p = pageOf(row);
+        return pages[p].minutes[month - 1][row - pageStarts[p]];
+    }
+
+    /**
+     * Set the minutes worked in a month of the year shown as a whole, replacing any days set in it.
+     * @param row The employee's row
+     * @param month The month number, 1 to 12
+     * @param value The minutes worked, or INVALID_MINUTES for a cell that couldn't be read, which counts as none
+     */
+    public void setMinutes(int row, int month, int value) {
+        int p = pageOf(row);
+        Page page = writablePage(p);
+        int index = row - pageStarts[p];
+        page.minutes[month - 1][index] = value;
+        updateCumulativeMinutes(page, index, month);
+        if (page.series[index] != null) {
+            writableSeries(page, index).setMonth(year, month, Math.max(value, 0));
+        }
+    }
+
+    /**
+     * @return The year the month columns show
+     */
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     * Show another year in the month columns, filling them from each employee's month totals for it.
+     * Employees whose time was all in the month columns are given a series first, so none of it is lost.
+     * Cells that couldn't be read are cleared, as there is nowhere to keep them outside the year shown.
+     * @param newYear The year to show
+     */
+    public void setYear(int newYear) {
+        checkWritable();
+        if (newYear == year) {
+            return;
+        }
+        for (int p = 0; p < pageCount; p++) {
+            Page page = writablePage(p);
+            for (int index = 0; index < page.size; index++) {
+                if (page.series[index] == null && page.cumulativeMinutes[MONTHS - 1][index] != 0) {
+                    seriesOf(page, index);
+                }
+                TimeSeries series = page.series[index];
+                for (int month = 1; month <= MONTHS; month++) {
+                    page.minutes[month - 1][index] = series == null ? 0 : monthColumnValue(series.getMonth(newYear, month));
+                }
+                updateCumulativeMinutes(page, index, 1);
+            }
+        }
+        year = newYear;
+    }
+
+    /**
+     * Get the minutes worked on a day.
+     * @param row The employee's row
+     * @param date The day
+     * @return The minutes worked; a month of the year shown entered as a whole counts on its first day
+     */
+    public int getDayMinutes(int row, LocalDate date) {
+        int p = pageOf(row);
+        Page page = pages[p];
+        int index = row - pageStarts[p];
+        if (page.series[index] != null) {
+            return page.series[index].getDay(date);
+        }
+        if (date.getYear() != year || date.getDayOfMonth() != 1) {
+            return 0;
+        }
+        return Math.max(page.minutes[date.getMonthValue() - 1][index], 0);
+    }
+
+    /**
+     * Set the minutes worked on a day, keeping the month column up to date if the day is in the year shown.
+     * @param row The employee's row
+     * @param date The day
+     * @param value The minutes worked; not negative
+     * @return The minutes worked that day before
+     */
+    public int setDayMinutes(int row, LocalDate date, int value) {
+        int p = pageOf(row);
+        Page page = writablePage(p);
+        int index = row - pageStarts[p];
+        TimeSeries days = seriesOf(page, index);
+        int oldValue = days.setDay(date, value);
+        if (date.getYear() == year) {
+            int month = date.getMonthValue();
+            page.minutes[month - 1][index] = monthColumnValue(days.getMonth(year, month));
+            updateCumulativeMinutes(page, index, month);
+        }
+        return oldValue;
+    }
+
+    /**
+     * Get the minutes worked between two days, from the month and year totals wherever the range covers them whole.
+     * @param row The employee's row
+     * @param from The first day, inclusive
+     * @param to The last day, inclusive
+     * @return The minutes worked, or 0 if the last day is before the first
+     */
+    public long getMinutesBetween(int row, LocalDate from, LocalDate to) {
+        int p = pageOf(row);
+        Page page = pages[p];
+        int index = row - pageStarts[p];
+        if (page.series[index] != null) {
+            return page.series[index].getMinutesBetween(from, to);
+        }
+        // Every month's time counts on its first day
+        long total = 0;
+        for (int month = 1; month <= MONTHS; month++) {
+            LocalDate firstDay = LocalDate.of(year, month, 1);
+            if (!firstDay.isBefore(from) && !firstDay.isAfter(to)) {
+                total += Math.max(page.minutes[month - 1][index], 0);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @param row The employee's row
+     * @return The employee's days and other years, or null if all their time is in the month columns;
+     *         only to be read, as it may be shared with snapshots
+     */
+    public TimeSeries getSeries(int row) {
+        int p = pageOf(row);
+        return pages[p].series[row - pageStarts[p]];
+    }
+
+    /**
+     * Compare an employee with one in another store, e.g. to find the rows an undo leaves as they were.
+     * Rows on a page the stores share are the same without being read.
+     * @param row The employee's row
+     * @param other The other store
+     * @param otherRow The other employee's row
+     * @return True if both have the same id, name, months, tip share, days and other years
+     */
+    public boolean rowEquals(int row, EmployeeStore other, int otherRow) {
+        int p = pageOf(row);
+        int otherP = other.pageOf(otherRow);
+        Page page = pages[p];
+        Page otherPage = other.pages[otherP];
+        int index = row - pageStarts[p];
+        int otherIndex = otherRow - other.pageStarts[otherP];
+        if (page == otherPage && index == otherIndex) {
+            return true;
+        }
+        if (page.ids[index] != otherPage.ids[otherIndex]
+                || page.tipShares[index] != otherPage.tipShares[otherIndex]
+                || !Objects.equals(page.names[index], otherPage.names[otherIndex])) {
+            return false;
+        }
+        for (int month = 0; month < MONTHS; month++) {
+            if (page.minutes[month][index] != otherPage.minutes[month][otherIndex]) {
+                return false;
+            }
+        }
+        TimeSeries series = page.series[index];
+        TimeSeries otherSeries = otherPage.series[otherIndex];
+        if (series == null || otherSeries == null) {
+            return (series == null || series.isEmpty()) && (otherSeries == null || otherSeries.isEmpty());
+        }
+        return series.hasSameTime(otherSeries);
+    }
+
+    /**
+     * Count the rows from one on that are on a page shared with another store, in the same place on the page,
+     * and so are the same in both without being compared.
+     * @param row The first row
+     * @param other The other store
+     * @param otherRow The row in the other store to compare it with
+     * @return The number of rows, up to the end of the page, or 0 if the page isn't shared
+     */
+    public int getSharedRows(int row, EmployeeStore other, int otherRow) {
+        if (row >= rowCount || otherRow >= other.rowCount) {
+            return 0;
+        }
+        int p = pageOf(row);
+        int otherP = other.pageOf(otherRow);
+        int index = row - pageStarts[p];
+        if (pages[p] != other.pages[otherP] || index != otherRow - other.pageStarts[otherP]) {
+            return 0;
+        }
+        return pages[p].size - index;
+    }
+
+    /**
+     * Give an employee a series, e.g. when restoring a saved table.
+     * Its month totals for the year shown must match the month columns.
+     * @param row The employee's row
+     * @param timeSeries The employee's days and other years
+     */
+    public void setSeries(int row, TimeSeries timeSeries) {
+        int p = pageOf(row);
+        Page page = writablePage(p);
+        int index = row - pageStarts[p];
+        page.series[index] = timeSeries;
+        page.ownsSeries[index] = true;
+    }
+
+    /**
+     * An employee's series, made from their month columns if they don't have one yet.
+     */
+    private TimeSeries seriesOf(Page page, int index) {
+        if (page.series[index] == null) {
+            TimeSeries months = new TimeSeries();
+            for (int month = 1; month <= MONTHS; month++) {
+                months.setMonth(year, month, Math.max(page.minutes[month - 1][index], 0));
+            }
+            page.series[index] = months;
+            page.ownsSeries[index] = true;
+        }
+        return writableSeries(page, index);
+    }
+
+    /**
+     * An employee's series, copied first if another page may still hold it.
+     */
+    private static TimeSeries writableSeries(Page page, int index) {
+        if (!page.ownsSeries[index]) {
+            page.series[index] = page.series[index].copy();
+            page.ownsSeries[index] = true;
+        }
+        return page.series[index];
+    }
+
+    private static int monthColumnValue(long monthMinutes) {
+        return (int) Math.min(monthMinutes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the minutes worked in a month range of the year shown, in constant time.
+     * Unreadable cells count as no time worked.
+     * @param row The employee's row
+     * @param startingMonth The month to start from, 1 to 12
+     * @param endingMonth The month to end at, 1 to 12; may be before the starting month to wrap around the year,
+     *                    e.g. October (10) to February (2)
+     * @return The total minutes worked from the start of the starting month to the end of the ending month
+     */
+    public long getMinutesInRange(int row, int startingMonth, int endingMonth) {
+        int p = pageOf(row);
+        long[][] cumulativeMinutes = pages[p].cumulativeMinutes;
+        int index = row - pageStarts[p];
+        long beforeStart = startingMonth == 1 ? 0 : cumulativeMinutes[startingMonth - 2][index];
+        long toEnd = cumulativeMinutes[endingMonth - 1][index];
+        if (startingMonth <= endingMonth) {
+            return toEnd - beforeStart;
+        }
+        // Wrap around from the starting month to December, then January to the ending month
+        return cumulativeMinutes[MONTHS - 1][index] - beforeStart + toEnd;
+    }
+
+    /**
+     * Get the minutes worked in a month range of the year shown by every employee, a page at a time.
+     * @param startingMonth The month to start from, 1 to 12
+     * @param endingMonth The month to end at, 1 to 12; may be before the starting month to wrap around the year
+     * @param totals Receives the minutes worked, indexed by row; must hold at least getRowCount() totals
+     */
+    public void getMinutesInRange(int startingMonth, int endingMonth, long[] totals) {
+        for (int p = 0; p < pageCount; p++) {
+            long[][] cumulativeMinutes = pages[p].cumulativeMinutes;
+            long[] beforeStart = startingMonth == 1 ? null : cumulativeMinutes[startingMonth - 2];
+            long[] toEnd = cumulativeMinutes[endingMonth - 1];
+            long[] yearEnd = cumulativeMinutes[MONTHS - 1];
+            boolean wraps = startingMonth > endingMonth;
+            int firstRow = pageStarts[p];
+            int count = pages[p].size;
+            for (int index = 0; index < count; index++) {
+                long total = toEnd[index] - (beforeStart == null ? 0 : beforeStart[index]);
+                totals[firstRow + index] = wraps ? total + yearEnd[index] : total;
+            }
+        }
+    }
+
+    /**
+     * Recalculate a row's running totals from a month onwards, after a change to that month.
+     */
+    private static void updateCumulativeMinutes(Page page, int index, int fromMonth) {
+        long total = fromMonth == 1 ? 0 : page.cumulativeMinutes[fromMonth - 2][index];
+        for (int month = fromMonth - 1; month < MONTHS; month++) {
+            total += Math.max(page.minutes[month][index], 0);
+            page.cumulativeMinutes[month][index] = total;
+        }
+    }
+
+    public long getTipShare(int row) {
+        int p = pageOf(row);
+        return pages[p].tipShares[row - pageStarts[p]];
+    }
+
+    public void setTipShare(int row, long pennies) {
+        int p = pageOf(row);
+        writablePage(p).tipShares[row - pageStarts[p]] = pennies;
+    }
+}
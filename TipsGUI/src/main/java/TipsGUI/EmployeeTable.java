@@ -0,0 +1,50 @@
+package TipsGUI;
+
+import javax.swing.*;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableModel;
+import java.awt.Component;
+
+/**
+ * A table of employees that draws its month and Tip Share cells straight from the model's numbers.
+ * JTable normally asks the model for every cell's value before drawing it, which for these cells would mean
+ * making a String each time; here the renderers read the numbers themselves and no value is made.
+ */
+public class EmployeeTable extends JTable {
+    private final DurationCellRenderer durationRenderer = new DurationCellRenderer();
+    private final MoneyCellRenderer moneyRenderer = new MoneyCellRenderer();
+
+    public <M extends TableModel & EmployeeCells> EmployeeTable(M model) {
+        super(model);
+    }
+
+    @Override
+    public TableCellRenderer getCellRenderer(int row, int column) {
+        int modelColumn = convertColumnIndexToModel(column);
+        if (EmployeeTableModel.isMonthColumn(modelColumn)) {
+            return durationRenderer;
+        } else if (modelColumn == EmployeeTableModel.TIP_SHARE_COLUMN) {
+            return moneyRenderer;
+        }
+        return super.getCellRenderer(row, column);
+    }
+
+    /**
+     * As JTable's, but without asking the model for the value of cells drawn from its numbers.
+     */
+    @Override
+    public Component prepareRenderer(TableCellRenderer renderer, int row, int column) {
+        if (!(renderer instanceof CharCellRenderer)) {
+            return super.prepareRenderer(renderer, row, column);
+        }
+        boolean isSelected = false;
+        boolean hasFocus = false;
+        if (!isPaintingForPrint()) {
+            isSelected = isCellSelected(row, column);
+            boolean rowIsLead = selectionModel.getLeadSelectionIndex() == row;
+            boolean columnIsLead = columnModel.getSelectionModel().getLeadSelectionIndex() == column;
+            hasFocus = rowIsLead && columnIsLead && isFocusOwner();
+        }
+        return renderer.getTableCellRendererComponent(this, null, isSelected, hasFocus, row, column);
+    }
+}
@@ -0,0 +1,429 @@
+package TipsGUI;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDate;
+
+/**
+ * Table model over a Ledger.
+ * Cells are kept as primitive minutes and pennies; their text is only produced when the table asks for it.
+ * Every change made through the model goes through the ledger, so it is recorded in the ledger's journal.
+ */
+public class EmployeeTableModel extends AbstractTableModel implements EmployeeCells {
+    public static final String[] COLUMN_NAMES = {"Name", "January", "February", "March", "April", "May", "June", "July", "August", "September", "October", "November", "December", "Tip Share"};
+    public static final int NAME_COLUMN = 0;
+    public static final int TIP_SHARE_COLUMN = 13;
+
+    private final Ledger ledger;
+    private final EmployeeStore store;
+    private final UndoHistory history = new UndoHistory(this);
+    private LiveTipShares liveTipShares;
+
+    // Events held back during a bulk update, coalesced into one when it ends
+    private int updateDepth;
+    private boolean structureChanged;
+    private int firstUpdatedRow = Integer.MAX_VALUE;
+    private int lastUpdatedRow = -1;
+    private int updatedColumn = -1;
+
+    public EmployeeTableModel() {
+        this(new Ledger());
+    }
+
+    public EmployeeTableModel(EmployeeStore store) {
+        this(new Ledger(store));
+    }
+
+    public EmployeeTableModel(Ledger ledger) {
+        this.ledger = ledger;
+        this.store = ledger.getStore();
+    }
+
+    public Ledger getLedger() {
+        return ledger;
+    }
+
+    /**
+     * @return The undo history, in which anything changing the table on the user's behalf marks a step first
+     */
+    public UndoHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * @return The live store, to be read only on the event dispatch thread
+     */
+    public EmployeeStore getStore() {
+        return store;
+    }
+
+    public LiveTipShares getLiveTipShares() {
+        return liveTipShares;
+    }
+
+    /**
+     * Switch the Tip Share column between live shares and the stored shares.
+     * When live shares are switched off, the tips are split exactly for the live range and kept in the store.
+     * @param liveTipShares The running totals to work shares out from, or null to show stored shares
+     */
+    public void setLiveTipShares(LiveTipShares liveTipShares) {
+        if (liveTipShares == null && this.liveTipShares != null) {
+            long[] shares = new long[store.getRowCount()];
+            this.liveTipShares.allocate(new TipAllocator(), shares);
+            ledger.setTipShares(shares);
+        }
+        this.liveTipShares = liveTipShares;
+        fireTipSharesChanged();
+    }
+
+    /**
+     * Start a bulk update. Until the matching endUpdate, changes are applied straight away
+     * but listeners are not told; endUpdate then fires a single event covering all of them.
+     * Updates may be nested.
+     */
+    public void beginUpdate() {
+        updateDepth++;
+    }
+
+    /**
+     * End a bulk update, firing one event for everything that changed since beginUpdate.
+     */
+    public void endUpdate() {
+        if (updateDepth == 0 || --updateDepth > 0) {
+            return;
+        }
+        if (structureChanged) {
+            fireTableDataChanged();
+        } else if (lastUpdatedRow >= 0) {
+            super.fireTableChanged(new TableModelEvent(this, firstUpdatedRow, lastUpdatedRow, updatedColumn));
+        }
+        structureChanged = false;
+        firstUpdatedRow = Integer.MAX_VALUE;
+        lastUpdatedRow = -1;
+        updatedColumn = -1;
+    }
+
+    /**
+     * Holds events back while a bulk update is in progress.
+     * Rows being added or removed make the coalesced event a full data change;
+     * otherwise it covers the updated rows, and a single column if only one was touched.
+     */
+    @Override
+    public void fireTableChanged(TableModelEvent e) {
+        if (updateDepth == 0) {
+            super.fireTableChanged(e);
+            return;
+        }
+        if (e.getType() != TableModelEvent.UPDATE || e.getLastRow() == Integer.MAX_VALUE || e.getFirstRow() == TableModelEvent.HEADER_ROW) {
+            structureChanged = true;
+            return;
+        }
+        if (lastUpdatedRow < 0) {
+            updatedColumn = e.getColumn();
+        } else if (updatedColumn != e.getColumn()) {
+            updatedColumn = TableModelEvent.ALL_COLUMNS;
+        }
+        firstUpdatedRow = Math.min(firstUpdatedRow, e.getFirstRow());
+        lastUpdatedRow = Math.max(lastUpdatedRow, e.getLastRow());
+    }
+
+    /**
+     * Whether a column holds the hours worked in a month.
+     * @param column The model column
+     * @return True for the January to December columns
+     */
+    public static boolean isMonthColumn(int column) {
+        return column > NAME_COLUMN && column < TIP_SHARE_COLUMN;
+    }
+
+    @Override
+    public int getRowCount() {
+        return store.getRowCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return true;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (column == NAME_COLUMN) {
+            return store.getName(row);
+        } else if (column == TIP_SHARE_COLUMN) {
+            return MoneyFormat.toText(getTipShare(row));
+        }
+        return DurationFormat.toText(store.getMinutes(row, column));
+    }
+
+    /**
+     * An edit made in the table's cell editor, which is a step of its own in the undo history.
+     * Month cells that can't be read as a duration are stored as invalid, so the edit listener can reject them.
+     */
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        history.mark("Edit " + COLUMN_NAMES[column]);
+        if (column == NAME_COLUMN) {
+            ledger.setName(row, value == null ? "" : value.toString());
+        } else if (column == TIP_SHARE_COLUMN) {
+            ledger.setTipShare(row, MoneyFormat.toPennies(value));
+        } else {
+            ledger.setMinutes(row, column, DurationFormat.toMinutes(value));
+        }
+        fireTableCellUpdated(row, column);
+    }
+
+    /**
+     * Set an employee's name.
+     * @param row The model row
+     * @param name The new name
+     */
+    public void setName(int row, String name) {
+        ledger.setName(row, name);
+        fireTableCellUpdated(row, NAME_COLUMN);
+    }
+
+    /**
+     * Set the minutes worked in a month, keeping live shares up to date.
+     * Unlike an edit through setValueAt, nothing is left for the edit listener to do.
+     * @param row The model row
+     * @param month The month, 1 to 12, which is also its column
+     * @param minutes The minutes worked
+     */
+    public void setMinutes(int row, int month, int minutes) {
+        int oldMinutes = ledger.setMinutes(row, month, minutes);
+        fireTableCellUpdated(row, month);
+        if (liveTipShares != null && liveTipShares.cellEdited(row, month, oldMinutes, minutes)) {
+            fireTipSharesChanged();
+        }
+    }
+
+    /**
+     * Set the minutes worked on a day, keeping live shares up to date if the day is in the year shown.
+     * @param row The model row
+     * @param date The day
+     * @param minutes The minutes worked; not negative
+     */
+    public void setDayMinutes(int row, LocalDate date, int minutes) {
+        int month = date.getMonthValue();
+        int oldMonthMinutes = store.getMinutes(row, month);
+        ledger.setDayMinutes(row, date, minutes);
+        if (date.getYear() == store.getYear()) {
+            fireTableCellUpdated(row, month);
+            if (liveTipShares != null && liveTipShares.cellEdited(row, month, oldMonthMinutes, store.getMinutes(row, month))) {
+                fireTipSharesChanged();
+            }
+        }
+    }
+
+    /**
+     * Show another year in the month columns. Live shares follow the same months in the new year.
+     * @param year The year to show
+     */
+    public void setYear(int year) {
+        if (year == store.getYear()) {
+            return;
+        }
+        ledger.setYear(year);
+        if (liveTipShares != null) {
+            liveTipShares.reset();
+        }
+        if (getRowCount() > 0) {
+            fireTableRowsUpdated(0, getRowCount() - 1);
+        }
+    }
+
+    /**
+     * Whether a month cell holds a readable duration.
+     * @param row The model row
+     * @param column The model column
+     * @return False only for month cells holding an invalid value
+     */
+    public boolean isValidCell(int row, int column) {
+        return !isMonthColumn(column) || store.getMinutes(row, column) != EmployeeStore.INVALID_MINUTES;
+    }
+
+    /**
+     * Add an employee with no hours worked.
+     * @param name The employee's name
+     * @return A view of the new employee
+     */
+    public Employee addEmployee(String name) {
+        int row = ledger.addRow(name, null, 0);
+        rowsInserted(row, row);
+        return ledger.getEmployee(row);
+    }
+
+    /**
+     * Add an employee.
+     * @param name The employee's name
+     * @param monthlyMinutes The minutes worked in each month, January first
+     * @param tipShare The tip share in pennies
+     */
+    public void addRow(String name, int[] monthlyMinutes, long tipShare) {
+        int row = ledger.addRow(name, monthlyMinutes, tipShare);
+        rowsInserted(row, row);
+    }
+
+    /**
+     * Add every employee in a batch, telling listeners once for the whole batch.
+     * @param batch The employees to add
+     */
+    public void addRows(RowBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int firstRow = ledger.addRows(batch);
+        rowsInserted(firstRow, firstRow + batch.size() - 1);
+    }
+
+    /**
+     * Merge a batch into the table, telling listeners once: employees already in it have any months that differ
+     * updated, and the rest are added to the end.
+     * Months the batch couldn't read are left as they are, as are existing employees' names and tip shares.
+     * @param batch The employees to merge
+     * @param matcher Finds each employee's row; the same matcher must be used for every batch of an import
+     */
+    public void mergeRows(RowBatch batch, RowMatcher matcher) {
+        EmployeeStore store = ledger.getStore();
+        RowBatch added = new RowBatch(batch.size());
+        beginUpdate();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                int row = matcher.match(batch.getId(i), batch.getName(i));
+                if (row < 0) {
+                    int index = added.addCopy(batch, i);
+                    if (store.findRow(batch.getId(i)) >= 0) {
+                        // The id belongs to someone else here, so this employee is given a new one
+                        added.setId(index, EmployeeStore.NO_ID);
+                    }
+                    continue;
+                }
+                for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+                    int minutes = batch.getMinutes(i, month);
+                    if (minutes != EmployeeStore.INVALID_MINUTES && minutes != store.getMinutes(row, month)) {
+                        setMinutes(row, month, minutes);
+                    }
+                }
+            }
+            addRows(added);
+        } finally {
+            endUpdate();
+        }
+    }
+
+    public void removeRow(int row) {
+        ledger.removeRow(row);
+        long grandTotal = liveTipShares == null ? 0 : liveTipShares.getGrandTotal();
+        if (liveTipShares != null) {
+            liveTipShares.rowsDeleted(row, row);
+        }
+        fireTableRowsDeleted(row, row);
+        if (liveTipShares != null && liveTipShares.getGrandTotal() != grandTotal) {
+            fireTipSharesChanged();
+        }
+    }
+
+    /**
+     * Remove every employee, telling listeners once.
+     */
+    public void clear() {
+        ledger.clear();
+        if (liveTipShares != null) {
+            liveTipShares.reset();
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Put the table back as it was in a snapshot of the ledger, telling listeners once.
+     * @param snapshot The table to go back to
+     */
+    public void restore(Ledger.Snapshot snapshot) {
+        ledger.restore(snapshot);
+        if (liveTipShares != null) {
+            liveTipShares.reset();
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Replace every employee with those of another store, e.g. one a file was imported into, telling listeners once.
+     * @param rows The store to take the employees from
+     */
+    public void replaceRows(EmployeeStore rows) {
+        ledger.replace(rows);
+        if (liveTipShares != null) {
+            liveTipShares.reset();
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Keep live shares up to date with rows just added to the ledger, then tell listeners.
+     */
+    private void rowsInserted(int firstRow, int lastRow) {
+        long grandTotal = liveTipShares == null ? 0 : liveTipShares.getGrandTotal();
+        if (liveTipShares != null) {
+            liveTipShares.rowsInserted(firstRow, lastRow);
+        }
+        fireTableRowsInserted(firstRow, lastRow);
+        if (liveTipShares != null && liveTipShares.getGrandTotal() != grandTotal) {
+            fireTipSharesChanged();
+        }
+    }
+
+    @Override
+    public int getMinutes(int row, int month) {
+        return store.getMinutes(row, month);
+    }
+
+    /**
+     * Get an employee's tip share, as shown in the table.
+     * @param row The model row
+     * @return The live share if live shares are on, otherwise the stored share, in pennies
+     */
+    @Override
+    public long getTipShare(int row) {
+        return liveTipShares != null ? liveTipShares.getShare(row) : store.getTipShare(row);
+    }
+
+    /**
+     * Tell listeners that the whole Tip Share column may have changed.
+     * The table only repaints the cells in view.
+     */
+    public void fireTipSharesChanged() {
+        if (getRowCount() > 0) {
+            fireTableChanged(new TableModelEvent(this, 0, getRowCount() - 1, TIP_SHARE_COLUMN));
+        }
+    }
+
+    /**
+     * Set every employee's tip share, telling listeners once for the whole column.
+     * @param pennies The shares in pennies, indexed by model row
+     */
+    public void setTipShares(long[] pennies) {
+        ledger.setTipShares(pennies);
+        fireTipSharesChanged();
+    }
+
+    /**
+     * Set an employee's tip share.
+     * @param row The model row
+     * @param pennies The share in pennies
+     */
+    public void setTipShare(int row, long pennies) {
+        ledger.setTipShare(row, pennies);
+        fireTableCellUpdated(row, TIP_SHARE_COLUMN);
+    }
+}
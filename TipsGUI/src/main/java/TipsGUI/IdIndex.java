@@ -0,0 +1,99 @@
+package TipsGUI;
+
+/**
+ * The row of each employee id, in an open-addressed hash table of primitive ids and rows,
+ * so a lookup costs the same however large the table and nothing is boxed.
+ * Only the first row added with an id is kept.
+ */
+final class IdIndex {
+    /** Multiplier for Fibonacci hashing, which spreads sequential ids across the table. */
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    /** Ids, with NO_ID marking an empty slot. */
+    private long[] ids;
+    private int[] rows;
+    private int shift;
+    private int size;
+
+    /**
+     * @param expectedSize The number of ids the index should hold without growing
+     */
+    IdIndex(int expectedSize) {
+        // At most half full
+        int bits = Math.max(4, 33 - Integer.numberOfLeadingZeros(Math.max(expectedSize, 1)));
+        ids = new long[1 << bits];
+        rows = new int[1 << bits];
+        shift = 64 - bits;
+    }
+
+    /**
+     * Index every row of a store.
+     */
+    static IdIndex of(EmployeeStore store) {
+        int rowCount = store.getRowCount();
+        IdIndex index = new IdIndex(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            index.add(store.getId(row), row);
+        }
+        return index;
+    }
+
+    private int slot(long id) {
+        return (int) ((id * GOLDEN_RATIO) >>> shift);
+    }
+
+    /**
+     * @param id The employee's id
+     * @return The employee's row, or -1 if no row has that id
+     */
+    int find(long id) {
+        if (id == EmployeeStore.NO_ID) {
+            return -1;
+        }
+        int mask = ids.length - 1;
+        for (int slot = slot(id); ids[slot] != EmployeeStore.NO_ID; slot = (slot + 1) & mask) {
+            if (ids[slot] == id) {
+                return rows[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param id The employee's id
+     * @param row The employee's row, kept only if no row has that id yet
+     */
+    void add(long id, int row) {
+        if (id == EmployeeStore.NO_ID) {
+            return;
+        }
+        if ((size + 1) * 2 > ids.length) {
+            grow();
+        }
+        int mask = ids.length - 1;
+        int slot = slot(id);
+        while (ids[slot] != EmployeeStore.NO_ID) {
+            if (ids[slot] == id) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        ids[slot] = id;
+        rows[slot] = row;
+        size++;
+    }
+
+    private void grow() {
+        long[] oldIds = ids;
+        int[] oldRows = rows;
+        ids = new long[oldIds.length * 2];
+        rows = new int[oldRows.length * 2];
+        shift--;
+        size = 0;
+        for (int slot = 0; slot < oldIds.length; slot++) {
+            if (oldIds[slot] != EmployeeStore.NO_ID) {
+                add(oldIds[slot], oldRows[slot]);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package TipsGUI;
+
+import javax.swing.*;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Runs the window's long jobs, e.g. calculations, imports and exports, one at a time on a background thread,
+ * showing the one running in a status bar with its progress and a button to cancel it.
+ *
+ * A job's worker is only created when its turn comes, on the event dispatch thread, so anything it reads from
+ * the table then includes the results of the jobs before it. Jobs given the same key replace one another
+ * while they wait, so clicking Calculate again only queues the newest calculation.
+ * The next job starts as soon as the one before it is done or cancelled, but never runs until the cancelled one's
+ * thread has stopped, so two jobs are never working at once.
+ *
+ * Must only be used on the event dispatch thread.
+ */
+public class JobScheduler {
+    private static final String READY = "Ready";
+
+    private static final class Job {
+        final String name;
+        final String key;
+        final Supplier<? extends SwingWorker<?, ?>> workerFactory;
+
+        Job(String name, String key, Supplier<? extends SwingWorker<?, ?>> workerFactory) {
+            this.name = name;
+            this.key = key;
+            this.workerFactory = workerFactory;
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Jobs");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Deque<Job> queue = new ArrayDeque<>();
+    private Job running;
+    private SwingWorker<?, ?> runningWorker;
+
+    private final JPanel statusBar = new JPanel(new BorderLayout(10, 0));
+    private final JLabel statusLabel = new JLabel(READY);
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private final JButton cancelButton = new JButton("Cancel");
+
+    public JobScheduler() {
+        progressBar.setPreferredSize(new Dimension(200, progressBar.getPreferredSize().height));
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> cancelAll());
+        statusBar.setBorder(BorderFactory.createEmptyBorder(2, 30, 5, 30));
+        statusBar.add(statusLabel, BorderLayout.CENTER);
+        statusBar.add(progressBar, BorderLayout.EAST);
+        JPanel buttonPane = new JPanel(new BorderLayout());
+        buttonPane.add(cancelButton, BorderLayout.WEST);
+        statusBar.add(buttonPane, BorderLayout.WEST);
+    }
+
+    /**
+     * @return The status bar showing the job running, to be added to the window
+     */
+    public JComponent getStatusBar() {
+        return statusBar;
+    }
+
+    /**
+     * Queue a job behind any already waiting, or start it if none are running.
+     * @param name What the job does, e.g. "Importing staff.csv", to show while it runs
+     * @param key A job waiting with this key is dropped in favour of this one, which goes to the back of the queue
+     *            so it sees the results of every job asked for before it; null to never replace another
+     * @param workerFactory Creates the job's worker when its turn comes, on the event dispatch thread;
+     *                      it must not have been started, and may return null to skip the job
+     */
+    public void submit(String name, String key, Supplier<? extends SwingWorker<?, ?>> workerFactory) {
+        Job job = new Job(name, key, workerFactory);
+        if (key != null) {
+            for (Iterator<Job> waiting = queue.iterator(); waiting.hasNext(); ) {
+                Job other = waiting.next();
+                if (key.equals(other.key)) {
+                    waiting.remove();
+                    Metrics.count("jobs.coalesced");
+                }
+            }
+        }
+        queue.addLast(job);
+        if (running == null) {
+            startNext();
+        } else {
+            showStatus();
+        }
+    }
+
+    /**
+     * @param key A job key
+     * @return True if a job with the key is waiting to start
+     */
+    public boolean isQueued(String key) {
+        for (Job job : queue) {
+            if (Objects.equals(key, job.key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cancel the job running and drop every job waiting.
+     */
+    public void cancelAll() {
+        if (!queue.isEmpty()) {
+            Metrics.add("jobs.dropped", queue.size());
+            queue.clear();
+        }
+        if (runningWorker != null) {
+            runningWorker.cancel(false);
+        }
+    }
+
+    private void startNext() {
+        while (!queue.isEmpty()) {
+            Job job = queue.removeFirst();
+            SwingWorker<?, ?> worker = job.workerFactory.get();
+            if (worker == null) {
+                continue;
+            }
+            running = job;
+            runningWorker = worker;
+            progressBar.setValue(0);
+            progressBar.setIndeterminate(true);
+            cancelButton.setEnabled(true);
+            showStatus();
+            worker.addPropertyChangeListener(e -> {
+                if (worker != runningWorker) {
+                    return;
+                }
+                if ("progress".equals(e.getPropertyName())) {
+                    progressBar.setIndeterminate(false);
+                    progressBar.setValue((Integer) e.getNewValue());
+                } else if ("state".equals(e.getPropertyName()) && e.getNewValue() == SwingWorker.StateValue.DONE) {
+                    // The state changes after done() has run, so the job's results are already in the table
+                    finished();
+                }
+            });
+            // A worker is a Runnable; run on the single thread, it waits for any cancelled job still stopping
+            executor.execute(worker);
+            return;
+        }
+        running = null;
+        runningWorker = null;
+        progressBar.setIndeterminate(false);
+        progressBar.setValue(0);
+        cancelButton.setEnabled(false);
+        showStatus();
+    }
+
+    private void finished() {
+        Metrics.count(runningWorker.isCancelled() ? "jobs.cancelled" : "jobs.completed");
+        startNext();
+    }
+
+    private void showStatus() {
+        if (running == null) {
+            statusLabel.setText(READY);
+        } else if (queue.isEmpty()) {
+            statusLabel.setText(running.name + "...");
+        } else {
+            statusLabel.setText(running.name + "... (" + queue.size() + " more waiting)");
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package TipsGUI;
+
+import java.time.LocalDate;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The employee table as the application keeps it, apart from any window showing it.
+ * Every change goes through the ledger, which makes it under a single write lock and records it in the journal,
+ * if there is one, in the same order.
+ *
+ * The live store is only read on the thread making changes, normally the event dispatch thread.
+ * Any other thread, e.g. a background calculation, export or report, reads a snapshot instead: taking one holds
+ * the lock only long enough to copy a few pointers per page of the store, and once taken it never changes,
+ * so readers never wait for the writer or for each other.
+ */
+public class Ledger {
+    private final EmployeeStore store;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private EditJournal journal;
+    /** The number of changes made, guarded by the lock. */
+    private long changeCount;
+
+    /**
+     * The table as it was at one moment, and how far the journal had got by then.
+     */
+    public static final class Snapshot {
+        private final EmployeeStore store;
+        private final long journalSequence;
+        private final long changeCount;
+
+        private Snapshot(EmployeeStore store, long journalSequence, long changeCount) {
+            this.store = store;
+            this.journalSequence = journalSequence;
+            this.changeCount = changeCount;
+        }
+
+        /**
+         * @return The employees, in a store that can't be changed
+         */
+        public EmployeeStore getStore() {
+            return store;
+        }
+
+        /**
+         * @return The sequence of the last journal entry the snapshot includes, or 0 if there is no journal
+         */
+        public long getJournalSequence() {
+            return journalSequence;
+        }
+
+        /**
+         * @return The number of changes the ledger had made when the snapshot was taken
+         */
+        public long getChangeCount() {
+            return changeCount;
+        }
+    }
+
+    public Ledger() {
+        this(new EmployeeStore());
+    }
+
+    /**
+     * @param store The employees to start from, which from now on must only be changed through the ledger
+     */
+    public Ledger(EmployeeStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @return The live store, to be read only on the thread making changes
+     */
+    public EmployeeStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return The number of changes made so far, to be read only on the thread making changes;
+     * a snapshot with the same count is still the table as it is
+     */
+    public long getChangeCount() {
+        return changeCount;
+    }
+
+    public EditJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * @param journal The journal to record every later change in, or null to stop recording
+     */
+    public void setJournal(EditJournal journal) {
+        writeLock.lock();
+        try {
+            this.journal = journal;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Take a snapshot of the table, which may be done from any thread.
+     * @return The table as it is now, which later changes won't touch
+     */
+    public Snapshot snapshot() {
+        writeLock.lock();
+        try {
+            return new Snapshot(store.snapshot(), journal == null ? 0 : journal.getSequence(), changeCount);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Put the table back as it was in a snapshot, e.g. to undo the changes made since, as a single change.
+     * The snapshot's pages are shared rather than copied, and only the rows that differ are written to the journal.
+     * @param snapshot A snapshot of this ledger
+     */
+    public void restore(Snapshot snapshot) {
+        replace(snapshot.getStore());
+    }
+
+    /**
+     * Make the table hold the employees of another store, e.g. one a file was imported into, as a single change.
+     * As with restore, the store's pages are shared rather than copied, and only the rows that differ are journaled.
+     * @param rows The store to take the employees, their ids and the year shown from
+     */
+    public void replace(EmployeeStore rows) {
+        writeLock.lock();
+        try {
+            changeCount++;
+            EmployeeStore before = journal == null ? null : store.snapshot();
+            store.restore(rows);
+            if (journal != null) {
+                journal.restored(before, store);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param row The employee's row
+     * @return A view of the employee, which makes its changes through the ledger
+     */
+    public Employee getEmployee(int row) {
+        return new Employee(this, row);
+    }
+
+    /**
+     * Add an employee to the end of the table.
+     * @param name The employee's name
+     * @param monthlyMinutes The minutes worked in each month of the year shown, January first; may be null
+     * @param tipShare The tip share in pennies
+     * @return The employee's row
+     */
+    public int addRow(String name, int[] monthlyMinutes, long tipShare) {
+        writeLock.lock();
+        try {
+            changeCount++;
+            int row = store.addRow(name, monthlyMinutes, tipShare);
+            if (journal != null) {
+                journal.rowAdded(store, row);
+            }
+            return row;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Add every employee in a batch to the end of the table.
+     * @param batch The employees to add
+     * @return The row of the first employee
+     */
+    public int addRows(RowBatch batch) {
+        writeLock.lock();
+        try {
+            changeCount++;
+            int firstRow = store.addRows(batch);
+            if (journal != null) {
+                for (int row = firstRow; row < firstRow + batch.size(); row++) {
+                    journal.rowAdded(store, row);
+                }
+            }
+            return firstRow;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void removeRow(int row) {
+        writeLock.lock();
+        try {
+            changeCount++;
+            long id = store.getId(row);
+            store.removeRow(row);
+            if (journal != null) {
+                journal.rowDeleted(id);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void clear() {
+        writeLock.lock();
+        try {
+            changeCount++;
+            store.clear();
+            if (journal != null) {
+                journal.cleared();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return The employee's name before
+     */
+    public String setName(int row, String name) {
+        writeLock.lock();
+        try {
+            changeCount++;
+            String oldName = store.getName(row);
+            store.setName(row, name);
+            if (journal != null) {
+                journal.nameEdited(store.getId(row), oldName, name);
+            }
+            return oldName;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Set the minutes worked in a month of the year shown.
+     * @param row The employee's row
+     * @param month The month, 1 to 12
+     * @param minutes The minutes worked, or EmployeeStore.INVALID_MINUTES for a cell that couldn't be read
+     * @return The month's minutes before
+     */
+    public int setMinutes(int row, int month, int minutes) {
+        writeLock.lock();
+        try {
+            changeCount++;
+            int oldMinutes = store.getMinutes(row, month);
+            store.setMinutes(row, month, minutes);
+            if (journal != null) {
+                journal.minutesEdited(store.getId(row), month, oldMinutes, minutes);
+            }
+            return oldMinutes;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Set the minutes worked on a day, in any year.
+     * @param row The employee's row
+     * @param date The day
+     * @param minutes The minutes worked; not negative
+     * @return The day's minutes before
+     */
+    public int setDayMinutes(int row, LocalDate date, int minutes) {
+        writeLock.lock();
+        try {
+            changeCount++;
+            int oldMinutes = store.setDayMinutes(row, date, minutes);
+            if (journal != null) {
+                journal.dayEdited(store.getId(row), date, oldMinutes, minutes);
+            }
+            return oldMinutes;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param year The year for the month columns to show
+     */
+    public void setYear(int year) {
+        writeLock.lock();
+        try {
+            int oldYear = store.getYear();
+            if (year == oldYear) {
+                return;
+            }
+            changeCount++;
+            store.setYear(year);
+            if (journal != null) {
+                journal.yearShown(oldYear, year);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return The employee's share before, in pennies
+     */
+    public long setTipShare(int row, long pennies) {
+        writeLock.lock();
+        try {
+            changeCount++;
+            long oldShare = store.getTipShare(row);
+            store.setTipShare(row, pennies);
+            if (journal != null) {
+                journal.tipShareEdited(store.getId(row), oldShare, pennies);
+            }
+            return oldShare;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Set every employee's tip share, recorded as a single change.
+     * @param pennies The shares in pennies, indexed by row; extra shares are ignored
+     */
+    public void setTipShares(long[] pennies) {
+        writeLock.lock();
+        try {
+            changeCount++;
+            int rowCount = Math.min(pennies.length, store.getRowCount());
+            for (int row = 0; row < rowCount; row++) {
+                store.setTipShare(row, pennies[row]);
+            }
+            if (journal != null) {
+                journal.tipSharesSet(store);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package TipsGUI;
+
+import java.util.Arrays;
+
+/**
+ * Running totals behind the live Tip Share column.
+ * Keeps each employee's minutes in the selected month range and the grand total of everyone's,
+ * so a single edited cell updates them in constant time. Shares are worked out from the totals when read.
+ */
+public class LiveTipShares {
+    private final EmployeeStore store;
+    private final int startingMonth;
+    private final int endingMonth;
+    private long tipsPennies;
+
+    private long[] totals = new long[0];
+    private long grandTotal;
+
+    /**
+     * Start keeping totals for a month range.
+     * @param store The employees to total
+     * @param startingMonthIndex The month to start from, 1 to 12
+     * @param endingMonthIndex The month to end at, 1 to 12; may be before the starting month to wrap around the year
+     * @param tipsPennies The tips available, in pennies
+     */
+    public LiveTipShares(EmployeeStore store, int startingMonthIndex, int endingMonthIndex, long tipsPennies) {
+        this.store = store;
+        this.startingMonth = startingMonthIndex;
+        this.endingMonth = endingMonthIndex;
+        this.tipsPennies = tipsPennies;
+        reset();
+    }
+
+    public int getStartingMonth() {
+        return startingMonth;
+    }
+
+    public int getEndingMonth() {
+        return endingMonth;
+    }
+
+    public long getGrandTotal() {
+        return grandTotal;
+    }
+
+    public long getTips() {
+        return tipsPennies;
+    }
+
+    public void setTips(long tipsPennies) {
+        this.tipsPennies = tipsPennies;
+    }
+
+    /**
+     * Whether a month counts towards the selected range.
+     * @param month The month number, 1 to 12
+     * @return True if the month is between the starting and ending months, wrapping around the year if needed
+     */
+    public boolean isInRange(int month) {
+        if (startingMonth <= endingMonth) {
+            return month >= startingMonth && month <= endingMonth;
+        }
+        return month >= startingMonth || month <= endingMonth;
+    }
+
+    /**
+     * Total every row again, e.g. after the whole table has been replaced.
+     */
+    public void reset() {
+        int rowCount = store.getRowCount();
+        totals = new long[Math.max(rowCount, 16)];
+        grandTotal = 0;
+        store.getMinutesInRange(startingMonth, endingMonth, totals);
+        for (int row = 0; row < rowCount; row++) {
+            grandTotal += totals[row];
+        }
+    }
+
+    /**
+     * Apply an edit to one month cell.
+     * @param row The model row
+     * @param month The month number, 1 to 12
+     * @param oldMinutes The cell's minutes before the edit
+     * @param newMinutes The cell's minutes after the edit
+     * @return True if the grand total changed, meaning every share may have changed
+     */
+    public boolean cellEdited(int row, int month, int oldMinutes, int newMinutes) {
+        if (!isInRange(month)) {
+            return false;
+        }
+        long delta = (long) Math.max(newMinutes, 0) - Math.max(oldMinutes, 0);
+        totals[row] += delta;
+        grandTotal += delta;
+        return delta != 0;
+    }
+
+    /**
+     * Total rows that have just been added to the store.
+     * @param firstRow The first new row
+     * @param lastRow The last new row, inclusive
+     */
+    public void rowsInserted(int firstRow, int lastRow) {
+        int count = lastRow - firstRow + 1;
+        int rowCount = store.getRowCount();
+        if (totals.length < rowCount) {
+            totals = Arrays.copyOf(totals, Math.max(rowCount, totals.length + (totals.length >> 1)));
+        }
+        System.arraycopy(totals, firstRow, totals, lastRow + 1, rowCount - count - firstRow);
+        for (int row = firstRow; row <= lastRow; row++) {
+            totals[row] = store.getMinutesInRange(row, startingMonth, endingMonth);
+            grandTotal += totals[row];
+        }
+    }
+
+    /**
+     * Drop the totals of rows that have just been removed from the store.
+     * @param firstRow The first removed row
+     * @param lastRow The last removed row, inclusive
+     */
+    public void rowsDeleted(int firstRow, int lastRow) {
+        for (int row = firstRow; row <= lastRow; row++) {
+            grandTotal -= totals[row];
+        }
+        System.arraycopy(totals, lastRow + 1, totals, firstRow, store.getRowCount() - firstRow);
+    }
+
+    /**
+     * Get an employee's share of the tips in proportion to their time worked in the range.
+     * Rounded on its own, so the shares shown while editing may be a few pennies off the pool in total;
+     * allocate splits the pool exactly.
+     * @param row The model row
+     * @return The share in pennies, rounded to the nearest penny
+     */
+    public long getShare(int row) {
+        if (grandTotal == 0) {
+            return 0;
+        }
+        return Math.round((double) tipsPennies * totals[row] / grandTotal);
+    }
+
+    /**
+     * Split the tips exactly between every employee, from the running totals.
+     * @param allocator The allocator to split with
+     * @param shares Receives each employee's share in pennies, indexed by model row
+     */
+    public void allocate(TipAllocator allocator, long[] shares) {
+        allocator.allocate(totals, store.getRowCount(), tipsPennies, shares);
+    }
+}
@@ -0,0 +1,177 @@
+package TipsGUI;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.awt.Toolkit;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Counters and timers for what the app does, e.g. each command, import and export, and how long calculations take,
+ * so a report that the app hung can be checked against what it was doing.
+ * Recording is a lookup and an add on a LongAdder, which is cheap enough for any thread to do on every event.
+ *
+ * install publishes them, along with the event dispatch thread stalls an EdtWatchdog records, as the MBean
+ * "TipsGUI:type=Metrics", and writes them to the log every tipsgui.metrics.logSeconds seconds if that is set.
+ */
+public final class Metrics {
+    public static final String OBJECT_NAME = "TipsGUI:type=Metrics";
+    /** The system property holding how often, in seconds, to write the metrics to the log; unset for never. */
+    public static final String LOG_SECONDS_PROPERTY = "tipsgui.metrics.logSeconds";
+    /** The system property holding how long, in milliseconds, an event may hold up the event dispatch thread. */
+    public static final String STALL_MILLIS_PROPERTY = "tipsgui.edt.stallMillis";
+    private static final long DEFAULT_STALL_MILLIS = 500;
+
+    /** The application's log, for anything worth knowing about that isn't worth stopping for. */
+    static final Logger LOG = Logger.getLogger(Metrics.class.getName());
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static volatile EdtWatchdog watchdog;
+
+    private static final class Timer {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Watch the event dispatch thread, publish the metrics over JMX, and start writing them to the log
+     * if the system properties ask for it. Does nothing after the first call.
+     */
+    public static synchronized void install() {
+        if (watchdog != null) {
+            return;
+        }
+        EdtWatchdog newWatchdog = new EdtWatchdog(Long.getLong(STALL_MILLIS_PROPERTY, DEFAULT_STALL_MILLIS));
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(newWatchdog);
+        newWatchdog.start();
+        watchdog = newWatchdog;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsBean(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            LOG.warning("The metrics could not be published over JMX: " + e.getMessage());
+        }
+
+        long logSeconds = Long.getLong(LOG_SECONDS_PROPERTY, 0);
+        if (logSeconds > 0) {
+            ScheduledExecutorService logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Metrics log");
+                thread.setDaemon(true);
+                return thread;
+            });
+            logger.scheduleAtFixedRate(() -> LOG.info(dump()), logSeconds, logSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * @return The watchdog install started, or null if it hasn't been called
+     */
+    public static EdtWatchdog getWatchdog() {
+        return watchdog;
+    }
+
+    /**
+     * Add one to a counter.
+     * @param name The counter's name, e.g. "table.edits"
+     */
+    public static void count(String name) {
+        add(name, 1);
+    }
+
+    /**
+     * @param name The counter's name, e.g. "import.rows"
+     * @param amount The amount to add
+     */
+    public static void add(String name, long amount) {
+        COUNTERS.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * Record the time since something started.
+     * @param name The timer's name, e.g. "command.EXPORT_TABLE"
+     * @param startNanos When it started, from System.nanoTime()
+     */
+    public static void time(String name, long startNanos) {
+        record(name, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @param name The timer's name
+     * @param nanos How long it took
+     */
+    public static void record(String name, long nanos) {
+        TIMERS.computeIfAbsent(name, key -> new Timer()).record(nanos);
+    }
+
+    /**
+     * @return Every counter's value, by name
+     */
+    public static Map<String, Long> getCounters() {
+        Map<String, Long> counters = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> counters.put(name, counter.sum()));
+        return counters;
+    }
+
+    /**
+     * @return Every timer's totals, in order of name
+     */
+    public static List<TimerStats> getTimers() {
+        List<TimerStats> timers = new ArrayList<>();
+        new TreeMap<>(TIMERS).forEach((name, timer) -> timers.add(new TimerStats(name, timer.count.sum(),
+                TimeUnit.NANOSECONDS.toMillis(timer.totalNanos.sum()), TimeUnit.NANOSECONDS.toMillis(timer.maxNanos.get()))));
+        return timers;
+    }
+
+    /**
+     * Set every counter and timer back to zero, and forget the stalls recorded.
+     */
+    public static void reset() {
+        COUNTERS.clear();
+        TIMERS.clear();
+        EdtWatchdog current = watchdog;
+        if (current != null) {
+            current.clearStalls();
+        }
+    }
+
+    /**
+     * @return Every counter, timer and stall recorded, as text
+     */
+    public static String dump() {
+        StringBuilder text = new StringBuilder("Metrics");
+        getCounters().forEach((name, value) -> text.append("\n  ").append(name).append(" = ").append(value));
+        for (TimerStats timer : getTimers()) {
+            text.append("\n  ").append(timer);
+        }
+        EdtWatchdog current = watchdog;
+        if (current != null) {
+            for (String stall : current.getStalls()) {
+                text.append("\n  ").append(stall.replace("\n", "\n    "));
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package TipsGUI;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Publishes Metrics, and the watchdog's stalls, over JMX.
+ */
+class MetricsBean implements MetricsMXBean {
+    @Override
+    public Map<String, Long> getCounters() {
+        return Metrics.getCounters();
+    }
+
+    @Override
+    public List<TimerStats> getTimers() {
+        return Metrics.getTimers();
+    }
+
+    @Override
+    public List<String> getStalls() {
+        EdtWatchdog watchdog = Metrics.getWatchdog();
+        return watchdog == null ? Collections.<String>emptyList() : watchdog.getStalls();
+    }
+
+    @Override
+    public long getStallThresholdMillis() {
+        EdtWatchdog watchdog = Metrics.getWatchdog();
+        return watchdog == null ? 0 : watchdog.getThresholdMillis();
+    }
+
+    @Override
+    public void setStallThresholdMillis(long millis) {
+        EdtWatchdog watchdog = Metrics.getWatchdog();
+        if (watchdog != null) {
+            watchdog.setThresholdMillis(millis);
+        }
+    }
+
+    @Override
+    public void reset() {
+        Metrics.reset();
+    }
+
+    @Override
+    public String dump() {
+        return Metrics.dump();
+    }
+}
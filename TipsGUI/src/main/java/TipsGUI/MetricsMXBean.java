@@ -0,0 +1,41 @@
+package TipsGUI;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The app's metrics as JMX shows them, e.g. in JConsole or VisualVM.
+ */
+public interface MetricsMXBean {
+    /**
+     * @return Every counter's value, by name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * @return Every timer's totals
+     */
+    List<TimerStats> getTimers();
+
+    /**
+     * @return The most recent times the event dispatch thread was held up, oldest first, each with its stack
+     */
+    List<String> getStalls();
+
+    /**
+     * @return How long an event may hold up the event dispatch thread before it is recorded as a stall
+     */
+    long getStallThresholdMillis();
+
+    void setStallThresholdMillis(long millis);
+
+    /**
+     * Set every counter and timer back to zero, and forget the stalls recorded.
+     */
+    void reset();
+
+    /**
+     * @return Everything recorded, as text
+     */
+    String dump();
+}
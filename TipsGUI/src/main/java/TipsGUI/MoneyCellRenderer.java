@@ -0,0 +1,11 @@
+package TipsGUI;
+
+/**
+ * Draws a Tip Share cell from its pennies, e.g. "£12.34".
+ */
+public class MoneyCellRenderer extends CharCellRenderer {
+    @Override
+    protected int format(EmployeeCells cells, int row, int column, char[] buffer) {
+        return MoneyFormat.format(cells.getTipShare(row), buffer, 0);
+    }
+}
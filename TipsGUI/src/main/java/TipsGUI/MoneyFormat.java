@@ -0,0 +1,175 @@
+package TipsGUI;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Converts between the "£12.34" text shown in the Tip Share column and whole pennies.
+ */
+public final class MoneyFormat {
+    /** The most characters format can write: the currency symbol, a sign, nineteen digits and the decimal point. */
+    public static final int MAX_LENGTH = 22;
+
+    private MoneyFormat() {
+    }
+
+    /**
+     * Read an amount of money as pennies.
+     * A leading currency symbol is ignored.
+     * @param value The amount, e.g. "£12.34" or "12.34"
+     * @return The amount in pennies, or 0 if it can't be read
+     */
+    public static long toPennies(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        String valueString = String.valueOf(value).trim();
+        if (valueString.startsWith("£")) {
+            valueString = valueString.substring(1);
+        }
+        try {
+            return new BigDecimal(valueString).movePointRight(2).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Read an amount of money typed in, e.g. the tips available, as pennies.
+     * Unlike toPennies, which reads anything it can't make sense of as nothing, an amount that isn't digits
+     * with at most one decimal point is an error. A leading currency symbol is ignored, and part pennies are rounded.
+     * @param text The amount, e.g. "£1234.56" or "1234.56"
+     * @return The amount in pennies
+     * @throws NumberFormatException If the amount can't be read
+     */
+    public static long parseAmount(String text) {
+        String value = text.trim();
+        if (value.startsWith("£")) {
+            value = value.substring(1);
+        }
+        int point = value.indexOf('.');
+        boolean hasDigits = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigits = true;
+            } else if (i != point) {
+                throw new NumberFormatException("Not an amount of money: " + text);
+            }
+        }
+        if (!hasDigits) {
+            throw new NumberFormatException("Not an amount of money: " + text);
+        }
+        try {
+            return new BigDecimal(value).movePointRight(2).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Too many pennies: " + text);
+        }
+    }
+
+    /**
+     * Read part of a character sequence as pennies, without allocating in the common case.
+     * Accepts the same text as toPennies, with amounts of more than two decimal places handed over to it.
+     * @param text The characters to read
+     * @param start The index of the first character, inclusive
+     * @param end The index of the last character, exclusive
+     * @return The amount in pennies, or 0 if it can't be read
+     */
+    public static long parsePennies(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int i = start;
+        if (i < end && text.charAt(i) == '£') {
+            i++;
+        }
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long pounds = 0;
+        int digits = 0;
+        while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            if (pounds > (Long.MAX_VALUE / 100 - 9) / 10) {
+                return 0;
+            }
+            pounds = pounds * 10 + (text.charAt(i++) - '0');
+            digits++;
+        }
+        long pence = 0;
+        if (i < end && text.charAt(i) == '.') {
+            i++;
+            int decimals = 0;
+            while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                if (decimals == 2) {
+                    // Needs rounding; rare enough to leave to BigDecimal
+                    return toPennies(text.subSequence(start, end).toString());
+                }
+                pence = pence * 10 + (text.charAt(i++) - '0');
+                decimals++;
+                digits++;
+            }
+            if (decimals == 1) {
+                pence *= 10;
+            }
+        }
+        if (i != end || digits == 0) {
+            return 0;
+        }
+        long total = pounds * 100 + pence;
+        return negative ? -total : total;
+    }
+
+    /**
+     * Write pennies as an amount of money.
+     * @param pennies The amount in pennies
+     * @return The amount in the following format: "£0.00"
+     */
+    public static String toText(long pennies) {
+        char[] buffer = new char[MAX_LENGTH];
+        return new String(buffer, 0, format(pennies, buffer, 0));
+    }
+
+    /**
+     * Write pennies as an amount of money into a character buffer, without allocating.
+     * @param pennies The amount in pennies
+     * @param buffer The buffer to write to, with at least MAX_LENGTH characters free from the offset
+     * @param offset Where to start writing
+     * @return The offset after the last character written
+     */
+    public static int format(long pennies, char[] buffer, int offset) {
+        buffer[offset++] = '£';
+        if (pennies < 0) {
+            buffer[offset++] = '-';
+        }
+
+        // Digits are written backwards, working on the negative value so Long.MIN_VALUE doesn't overflow
+        long remaining = pennies < 0 ? pennies : -pennies;
+        int end = offset + Math.max(digitCount(remaining), 3) + 1;
+        int i = end;
+        int written = 0;
+        do {
+            if (written == 2) {
+                buffer[--i] = '.';
+            }
+            buffer[--i] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+            written++;
+        } while (remaining != 0 || written < 3);
+        return end;
+    }
+
+    private static int digitCount(long negativeValue) {
+        int count = 1;
+        while (negativeValue <= -10) {
+            negativeValue /= 10;
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,92 @@
+package TipsGUI;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The rows of each employee name, in row order, so employees who share a name can be told apart by
+ * which of them they are: the first, second and so on.
+ */
+final class NameIndex {
+    private static final int[] NO_ROWS = {0};
+
+    /** Each name's rows, as {count, row, row, ...} with room to spare at the end. */
+    private final Map<String, int[]> rowsByName;
+
+    NameIndex(int expectedSize) {
+        rowsByName = new HashMap<>(Math.max(16, expectedSize * 4 / 3 + 1));
+    }
+
+    /**
+     * Index every row of a store.
+     */
+    static NameIndex of(EmployeeStore store) {
+        int rowCount = store.getRowCount();
+        NameIndex index = new NameIndex(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            index.add(store.getName(row), row);
+        }
+        return index;
+    }
+
+    /**
+     * @param name The employee's name
+     * @param occurrence Which of the employees with that name to find, counting from 0 in row order
+     * @return Their row, or -1 if fewer employees have the name
+     */
+    int find(String name, int occurrence) {
+        int[] rows = rowsByName.getOrDefault(name, NO_ROWS);
+        return occurrence < rows[0] ? rows[occurrence + 1] : -1;
+    }
+
+    /**
+     * @param name The employee's name
+     * @param row The employee's row, which must be after every row already indexed under that name
+     */
+    void add(String name, int row) {
+        int[] rows = rowsByName.get(name);
+        if (rows == null) {
+            rowsByName.put(name, new int[]{1, row});
+            return;
+        }
+        if (rows[0] + 1 == rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+            rowsByName.put(name, rows);
+        }
+        rows[++rows[0]] = row;
+    }
+
+    /**
+     * Move a row from one name to another.
+     * @param row The employee's row
+     * @param oldName The name the row is indexed under
+     * @param newName The name to index it under instead
+     */
+    void rename(int row, String oldName, String newName) {
+        int[] rows = rowsByName.get(oldName);
+        if (rows != null) {
+            int at = Arrays.binarySearch(rows, 1, rows[0] + 1, row);
+            if (at > 0) {
+                System.arraycopy(rows, at + 1, rows, at, rows[0] - at);
+                if (--rows[0] == 0) {
+                    rowsByName.remove(oldName);
+                }
+            }
+        }
+        rows = rowsByName.get(newName);
+        if (rows == null || rows[rows[0]] < row) {
+            add(newName, row);
+            return;
+        }
+        // The row goes among the others by position, keeping them in row order
+        if (rows[0] + 1 == rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+            rowsByName.put(newName, rows);
+        }
+        int at = -Arrays.binarySearch(rows, 1, rows[0] + 1, row) - 1;
+        System.arraycopy(rows, at, rows, at + 1, rows[0] + 1 - at);
+        rows[at] = row;
+        rows[0]++;
+    }
+}
@@ -0,0 +1,104 @@
+package TipsGUI;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a snapshot file a page of rows at a time, for snapshots too large to load or map whole.
+ * Only the page asked for is read from the file, so memory use doesn't grow with the size of the snapshot.
+ * Pages may be read from several threads at once.
+ */
+public class PagedSnapshot implements Closeable {
+    public static final int PAGE_ROWS = 1024;
+
+    private final FileChannel channel;
+    private final SnapshotFile.Layout layout;
+
+    private PagedSnapshot(FileChannel channel, SnapshotFile.Layout layout) {
+        this.channel = channel;
+        this.layout = layout;
+    }
+
+    /**
+     * @param path The snapshot to read
+     * @return The snapshot, open until closed
+     * @throws IOException If the file can't be read, isn't a snapshot, or is from a newer version
+     */
+    public static PagedSnapshot open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new PagedSnapshot(channel, SnapshotFile.Layout.read(channel));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getRowCount() {
+        return layout.rowCount;
+    }
+
+    public int getPageCount() {
+        return (layout.rowCount + PAGE_ROWS - 1) / PAGE_ROWS;
+    }
+
+    /**
+     * Read a page of rows.
+     * @param page The page number; page p holds rows p * PAGE_ROWS onwards
+     * @return The page's rows, with their ids
+     * @throws IOException If the file can't be read or is cut short
+     */
+    public RowBatch readPage(int page) throws IOException {
+        int firstRow = page * PAGE_ROWS;
+        int rows = Math.min(PAGE_ROWS, layout.rowCount - firstRow);
+        if (page < 0 || rows <= 0) {
+            throw new IndexOutOfBoundsException("Page " + page + " of " + getPageCount());
+        }
+
+        ByteBuffer records = read(layout.recordsOffset + (long) firstRow * layout.recordSize, rows * layout.recordSize);
+        ByteBuffer nameIndex = read(layout.nameIndexOffset + (long) firstRow * Integer.BYTES, (rows + 1) * Integer.BYTES);
+        int namesStart = nameIndex.getInt(0);
+        ByteBuffer names = read(layout.namesOffset + namesStart, nameIndex.getInt(rows * Integer.BYTES) - namesStart);
+
+        RowBatch batch = new RowBatch(rows);
+        for (int i = 0; i < rows; i++) {
+            int record = i * layout.recordSize;
+            int nameStart = nameIndex.getInt(i * Integer.BYTES) - namesStart;
+            int nameEnd = nameIndex.getInt((i + 1) * Integer.BYTES) - namesStart;
+            String name = new String(names.array(), nameStart, nameEnd - nameStart, StandardCharsets.UTF_8);
+
+            int minutesStart = record + layout.minutesOffset;
+            int index = batch.add(name, records.getLong(minutesStart + EmployeeStore.MONTHS * Integer.BYTES));
+            if (layout.minutesOffset > 0) {
+                batch.setId(index, records.getLong(record));
+            }
+            for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+                batch.setMinutes(index, month, records.getInt(minutesStart + (month - 1) * Integer.BYTES));
+            }
+        }
+        return batch;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("The snapshot file is cut short");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
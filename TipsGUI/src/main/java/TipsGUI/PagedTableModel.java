@@ -0,0 +1,111 @@
+package TipsGUI;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A read-only table over a snapshot too large to load, reading pages of rows from the file as they're shown.
+ * The pages read most recently are kept in a small cache, sized to the rows in view, so scrolling back and forth
+ * rereads little while memory stays the same however large the snapshot is.
+ * Tip shares are worked out per row from a StreamingTipAllocation, once one has been calculated.
+ */
+public class PagedTableModel extends AbstractTableModel implements EmployeeCells {
+    /** Pages kept beyond those in view, so the pages either side of the view are cached too. */
+    private static final int SPARE_PAGES = 2;
+
+    private final PagedSnapshot snapshot;
+    private int cachedPages = 1 + SPARE_PAGES;
+    private final Map<Integer, RowBatch> pages = new LinkedHashMap<Integer, RowBatch>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, RowBatch> eldest) {
+            return size() > cachedPages;
+        }
+    };
+    private StreamingTipAllocation allocation;
+
+    public PagedTableModel(PagedSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public PagedSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Size the page cache to the number of rows the table shows at once.
+     * @param visibleRows The rows in view
+     */
+    public void setVisibleRowCount(int visibleRows) {
+        // A view can straddle one more page than it fills
+        cachedPages = (visibleRows + PagedSnapshot.PAGE_ROWS - 1) / PagedSnapshot.PAGE_ROWS + 1 + SPARE_PAGES;
+        while (pages.size() > cachedPages) {
+            pages.remove(pages.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Show tip shares from a split of the tips, or the shares saved in the snapshot.
+     * @param allocation The split, or null for the saved shares
+     */
+    public void setAllocation(StreamingTipAllocation allocation) {
+        this.allocation = allocation;
+        if (getRowCount() > 0) {
+            fireTableChanged(new TableModelEvent(
+                    this, 0, getRowCount() - 1, EmployeeTableModel.TIP_SHARE_COLUMN));
+        }
+    }
+
+    private RowBatch page(int page) {
+        RowBatch batch = pages.get(page);
+        if (batch == null) {
+            try {
+                batch = snapshot.readPage(page);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pages.put(page, batch);
+        }
+        return batch;
+    }
+
+    @Override
+    public int getRowCount() {
+        return snapshot.getRowCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return EmployeeTableModel.COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return EmployeeTableModel.COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (column == EmployeeTableModel.NAME_COLUMN) {
+            return page(row / PagedSnapshot.PAGE_ROWS).getName(row % PagedSnapshot.PAGE_ROWS);
+        } else if (column == EmployeeTableModel.TIP_SHARE_COLUMN) {
+            return MoneyFormat.toText(getTipShare(row));
+        }
+        return DurationFormat.toText(getMinutes(row, column));
+    }
+
+    @Override
+    public int getMinutes(int row, int month) {
+        return page(row / PagedSnapshot.PAGE_ROWS).getMinutes(row % PagedSnapshot.PAGE_ROWS, month);
+    }
+
+    @Override
+    public long getTipShare(int row) {
+        RowBatch batch = page(row / PagedSnapshot.PAGE_ROWS);
+        int index = row % PagedSnapshot.PAGE_ROWS;
+        return allocation != null ? allocation.getShare(batch, index, row) : batch.getTipShare(index);
+    }
+}
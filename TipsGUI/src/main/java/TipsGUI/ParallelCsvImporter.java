@@ -0,0 +1,399 @@
+package TipsGUI;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Imports very large CSV files in the layout CsvExporter writes by parsing line-aligned chunks of the file in parallel.
+ * Each chunk is memory-mapped and parsed byte by byte on a fork-join pool into row batches,
+ * which are handed on in file order as soon as every earlier chunk is done. Only a few chunks are parsed ahead of
+ * the one being handed on, so a large file is never held in memory at once.
+ * Columns are matched by their header names, in any order.
+ *
+ * A quoted field with a line break in it can't be told apart from the start of a line in the middle of a chunk,
+ * so once a record like that is found, the rest of the file from it on is read by a CsvImporter instead.
+ */
+public class ParallelCsvImporter {
+    private static final int MAX_CHUNK_SIZE = 64 << 20;
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int BATCH_SIZE = 4096;
+
+    private final Path path;
+    private final ForkJoinPool pool;
+
+    public ParallelCsvImporter(Path path) {
+        this(path, ForkJoinPool.commonPool());
+    }
+
+    public ParallelCsvImporter(Path path, ForkJoinPool pool) {
+        this.path = path;
+        this.pool = pool;
+    }
+
+    /**
+     * Parse the file, handing each batch of rows to a sink in file order.
+     * @param sink Receives the batches, on the calling thread
+     * @param cancelled Checked between chunks; the import stops early once it returns true
+     * @param progress Receives the percentage of the file handed on so far
+     * @return The number of rows imported
+     * @throws IOException If the file can't be read or has no Name column
+     */
+    public long importTo(Consumer<RowBatch> sink, BooleanSupplier cancelled, IntConsumer progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return 0;
+            }
+
+            // The header line decides which table column each file column goes to
+            MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MIN_CHUNK_SIZE));
+            int headerEnd = lineEnd(head, 0, head.limit());
+            int[] columnTargets = readHeader(head, headerEnd);
+            if (columnTargets == null) {
+                return new CsvImporter(path).importTo(sink, cancelled, progress);
+            }
+            long dataStart = Math.min(size, headerEnd + 1L);
+
+            List<long[]> chunks = splitIntoLines(channel, dataStart, size);
+            int window = Math.max(2, pool.getParallelism() * 2);
+            Deque<ChunkTask> pending = new ArrayDeque<>();
+            int submitted = 0;
+            long imported = 0;
+            try {
+                for (int done = 0; done < chunks.size() && !cancelled.getAsBoolean(); done++) {
+                    while (submitted < chunks.size() && submitted < done + window) {
+                        long[] chunk = chunks.get(submitted++);
+                        ChunkTask task = new ChunkTask(channel.map(FileChannel.MapMode.READ_ONLY, chunk[0],
+                                chunk[1] - chunk[0]), chunk[0], columnTargets);
+                        pending.addLast(task);
+                        pool.execute(task);
+                    }
+                    // Taken out of the window as it is handed on, so its batches go once the sink is done with them
+                    ChunkTask task = pending.removeFirst();
+                    for (RowBatch batch : join(task)) {
+                        imported += batch.size();
+                        sink.accept(batch);
+                    }
+                    if (task.multiLineRecord >= 0) {
+                        return imported + new CsvImporter(path).importFrom(
+                                task.multiLineRecord, columnTargets, sink, cancelled, progress);
+                    }
+                    progress.accept((done + 1) * 100 / chunks.size());
+                }
+            } finally {
+                for (ChunkTask task : pending) {
+                    task.cancel(false);
+                }
+            }
+            return imported;
+        }
+    }
+
+    private static List<RowBatch> join(ChunkTask task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Split the file into chunks that each start at the beginning of a line and end after a line break.
+     * @return The start and end offset of each chunk
+     */
+    private List<long[]> splitIntoLines(FileChannel channel, long start, long size) throws IOException {
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, (size - start) / (pool.getParallelism() * 4L) + 1));
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            // Move the end forward to just after the next line break
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                int newline = lineEnd(probe, 0, Math.max(read, 0));
+                if (newline < read) {
+                    end += newline + 1;
+                    break;
+                }
+                end += Math.max(read, 1);
+            }
+            chunks.add(new long[]{start, Math.min(end, size)});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * @return The index of the next '\n' at or after from, or limit if there is none
+     */
+    private static int lineEnd(ByteBuffer buffer, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Match the header's column names to table columns.
+     * @return The table column for each file column, CsvHeader.ID or CsvHeader.IGNORED,
+     *         or null if a column name runs onto the next line
+     */
+    private static int[] readHeader(ByteBuffer buffer, int end) throws IOException {
+        List<String> headers = new ArrayList<>();
+        FieldReader reader = new FieldReader(buffer);
+        // Skip the UTF-8 byte order mark some spreadsheets start files with
+        boolean byteOrderMark = end >= 3 && (buffer.get(0) & 0xFF) == 0xEF && (buffer.get(1) & 0xFF) == 0xBB
+                && (buffer.get(2) & 0xFF) == 0xBF;
+        reader.startLine(byteOrderMark ? 3 : 0, end);
+        byte[] scratch = new byte[256];
+        while (reader.nextField()) {
+            if (scratch.length < reader.end - reader.start) {
+                scratch = new byte[reader.end - reader.start];
+            }
+            headers.add(reader.decode(scratch));
+        }
+        return reader.unclosed ? null : CsvHeader.columnTargets(headers);
+    }
+
+    /**
+     * Parses one mapped chunk of whole lines into row batches.
+     * Parsing stops at the first record with a quoted line break, leaving the rest of the file to a CsvImporter.
+     */
+    private static class ChunkTask extends RecursiveTask<List<RowBatch>> {
+        private final MappedByteBuffer buffer;
+        private final long offset;
+        private final int[] columnTargets;
+        /** The file offset of the first record whose quoted field runs onto the next line, or -1 if there is none. */
+        long multiLineRecord = -1;
+
+        ChunkTask(MappedByteBuffer buffer, long offset, int[] columnTargets) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.columnTargets = columnTargets;
+        }
+
+        @Override
+        protected List<RowBatch> compute() {
+            List<RowBatch> batches = new ArrayList<>();
+            RowBatch batch = new RowBatch(BATCH_SIZE);
+            FieldReader reader = new FieldReader(buffer);
+            ByteChars chars = new ByteChars(buffer);
+            byte[] scratch = new byte[256];
+            int limit = buffer.limit();
+
+            int lineStart = 0;
+            while (lineStart < limit) {
+                int end = lineEnd(buffer, lineStart, limit);
+                int next = end + 1;
+                if (end > lineStart && buffer.get(end - 1) == '\r') {
+                    end--;
+                }
+                if (end > lineStart) {
+                    if (batch.isFull()) {
+                        batches.add(batch);
+                        batch = new RowBatch(BATCH_SIZE);
+                    }
+                    int row = batch.add(null, 0);
+                    // Months missing from the file are left unreadable, as the sequential import does
+                    for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+                        batch.setMinutes(row, month, EmployeeStore.INVALID_MINUTES);
+                    }
+
+                    reader.startLine(lineStart, end);
+                    for (int column = 0; column < columnTargets.length && reader.nextField(); column++) {
+                        int target = columnTargets[column];
+                        if (target == EmployeeTableModel.NAME_COLUMN) {
+                            if (scratch.length < reader.end - reader.start) {
+                                scratch = new byte[reader.end - reader.start];
+                            }
+                            batch.setName(row, reader.decode(scratch));
+                        } else if (target == CsvHeader.ID) {
+                            batch.setId(row, parseId(reader.start, reader.end));
+                        } else if (target == EmployeeTableModel.TIP_SHARE_COLUMN) {
+                            batch.setTipShare(row, parsePennies(chars, reader.start, reader.end));
+                        } else if (target != CsvHeader.IGNORED) {
+                            batch.setMinutes(row, target, DurationFormat.parseMinutes(chars, reader.start, reader.end));
+                        }
+                    }
+                    // Columns past the header's may still open a quote
+                    while (!reader.unclosed && reader.nextField()) {
+                    }
+                    if (reader.unclosed) {
+                        batch.removeLast();
+                        multiLineRecord = offset + lineStart;
+                        break;
+                    }
+                }
+                lineStart = next;
+            }
+            if (!batch.isEmpty()) {
+                batches.add(batch);
+            }
+            return batches;
+        }
+
+        /**
+         * Read an employee id, or NO_ID if the field isn't one.
+         */
+        private long parseId(int start, int end) {
+            if (start == end || end - start > 18) {
+                return EmployeeStore.NO_ID;
+            }
+            long id = 0;
+            for (int i = start; i < end; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return EmployeeStore.NO_ID;
+                }
+                id = id * 10 + digit;
+            }
+            return id;
+        }
+
+        /**
+         * Read a tip share, skipping the UTF-8 bytes of a leading pound sign.
+         * Whitespace before the pound sign is skipped first, as MoneyFormat trims it.
+         */
+        private long parsePennies(ByteChars chars, int start, int end) {
+            while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+                start++;
+            }
+            if (end - start >= 2 && (buffer.get(start) & 0xFF) == 0xC2 && (buffer.get(start + 1) & 0xFF) == 0xA3) {
+                start += 2;
+            }
+            return MoneyFormat.parsePennies(chars, start, end);
+        }
+    }
+
+    /**
+     * Steps through the fields of one line, as opencsv writes them: optionally in double quotes, with quotes doubled.
+     * After nextField, start and end bound the field's contents without its surrounding quotes.
+     */
+    private static class FieldReader {
+        private final ByteBuffer buffer;
+        private int position;
+        private int lineEnd;
+        int start;
+        int end;
+        boolean escaped;
+        /** True once a quoted field has run to the end of the line without its closing quote. */
+        boolean unclosed;
+
+        FieldReader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void startLine(int lineStart, int lineEnd) {
+            this.position = lineStart;
+            this.lineEnd = lineEnd;
+            this.unclosed = false;
+        }
+
+        boolean nextField() {
+            if (position > lineEnd) {
+                return false;
+            }
+            escaped = false;
+            if (position < lineEnd && buffer.get(position) == '"') {
+                start = ++position;
+                while (position < lineEnd) {
+                    if (buffer.get(position) == '"') {
+                        if (position + 1 < lineEnd && buffer.get(position + 1) == '"') {
+                            escaped = true;
+                            position += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    position++;
+                }
+                end = position;
+                unclosed = position == lineEnd;
+                while (position < lineEnd && buffer.get(position) != ',') {
+                    position++;
+                }
+            } else {
+                start = position;
+                while (position < lineEnd && buffer.get(position) != ',') {
+                    position++;
+                }
+                end = position;
+            }
+            // Step over the comma; a line ending in a comma has one more, empty, field
+            position++;
+            return true;
+        }
+
+        /**
+         * Decode the current field as UTF-8, undoubling any quotes.
+         * @param scratch A buffer at least as long as the field
+         */
+        String decode(byte[] scratch) {
+            int length = 0;
+            for (int i = start; i < end; i++) {
+                byte b = buffer.get(i);
+                scratch[length++] = b;
+                if (escaped && b == '"') {
+                    i++;
+                }
+            }
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A view of bytes as characters, one byte each, so the ASCII parsers can read them without decoding.
+     */
+    private static class ByteChars implements CharSequence {
+        private final ByteBuffer buffer;
+
+        ByteChars(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = start; i < end; i++) {
+                bytes[i - start] = buffer.get(i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
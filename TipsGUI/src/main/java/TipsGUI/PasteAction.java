@@ -0,0 +1,187 @@
+package TipsGUI;
+
+import javax.swing.*;
+import java.awt.Toolkit;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pastes a tab-separated block of cells, e.g. copied from a spreadsheet, into the table from the selected cell.
+ * The whole block is checked before anything changes, reading the clipboard text in place; every readable cell is
+ * then applied in one update of the model, and any problems are listed in a single message afterwards.
+ * Blank cells leave the table as it was, and Tip Share cells are skipped, as shares are calculated.
+ */
+public class PasteAction extends AbstractAction {
+    private static final int MAX_LISTED_ERRORS = 10;
+
+    private final JTable table;
+    private final EmployeeTableModel model;
+
+    // The checked cells waiting to be applied, reused between pastes
+    private int[] editRows = new int[64];
+    private int[] editColumns = new int[64];
+    private int[] editMinutes = new int[64];
+    private final List<String> editNames = new ArrayList<>();
+    private int editCount;
+
+    public PasteAction(JTable table, EmployeeTableModel model) {
+        super("Paste");
+        this.table = table;
+        this.model = model;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        int firstViewRow = table.getSelectionModel().getMinSelectionIndex();
+        int firstViewColumn = table.getColumnModel().getSelectionModel().getMinSelectionIndex();
+        if (firstViewRow < 0 || firstViewColumn < 0) {
+            return;
+        }
+        String text;
+        try {
+            text = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
+        } catch (UnsupportedFlavorException | IOException | IllegalStateException ex) {
+            // Nothing that can be pasted as text
+            return;
+        }
+        if (table.isEditing()) {
+            table.getCellEditor().cancelCellEditing();
+        }
+
+        StringBuilder errors = new StringBuilder();
+        int errorCount = check(text, firstViewRow, firstViewColumn, errors);
+        apply();
+        if (errorCount > 0) {
+            if (errorCount > MAX_LISTED_ERRORS) {
+                errors.append("\n...and ").append(errorCount - MAX_LISTED_ERRORS).append(" more");
+            }
+            JOptionPane.showMessageDialog(
+                    table,
+                    editCount + " cells were pasted. " + errorCount + " could not be, and were left as they were:" + errors
+                            + "\n\nHours must match the accepted format, e.g. 128 hours and 31 minutes = 128h 31m",
+                    "Paste",
+                    JOptionPane.WARNING_MESSAGE);
+        }
+        editNames.clear();
+    }
+
+    /**
+     * Read the block in one pass, keeping each readable cell to apply and describing each problem.
+     * @param text The tab-separated block; rows end with a line break
+     * @param firstViewRow The table row the block's first row goes into
+     * @param firstViewColumn The table column the block's first column goes into
+     * @param errors Receives a line for each of the first MAX_LISTED_ERRORS problems
+     * @return The number of problems
+     */
+    private int check(String text, int firstViewRow, int firstViewColumn, StringBuilder errors) {
+        editCount = 0;
+        int errorCount = 0;
+        int length = text.length();
+        // A spreadsheet ends its last row with a line break too
+        if (length > 0 && text.charAt(length - 1) == '\n') {
+            length--;
+        }
+        if (length > 0 && text.charAt(length - 1) == '\r') {
+            length--;
+        }
+
+        int viewRow = firstViewRow;
+        int viewColumn = firstViewColumn;
+        int cellStart = 0;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : '\n';
+            if (c != '\t' && c != '\n') {
+                continue;
+            }
+
+            // Trim the cell, including the \r of a \r\n line break
+            int start = cellStart;
+            int end = i;
+            while (start < end && text.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && text.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (start < end) {
+                String problem = checkCell(text, start, end, viewRow, viewColumn);
+                if (problem != null) {
+                    if (errorCount++ < MAX_LISTED_ERRORS) {
+                        errors.append("\nRow ").append(viewRow + 1).append(", ").append(problem)
+                                .append(": \"").append(text, start, Math.min(end, start + 20)).append('"');
+                    }
+                }
+            }
+
+            cellStart = i + 1;
+            if (c == '\t') {
+                viewColumn++;
+            } else {
+                viewRow++;
+                viewColumn = firstViewColumn;
+            }
+        }
+        return errorCount;
+    }
+
+    /**
+     * Check one non-blank cell, keeping it to apply if it can be read.
+     * @return Where and what the problem is, or null if there is none
+     */
+    private String checkCell(String text, int start, int end, int viewRow, int viewColumn) {
+        if (viewRow >= table.getRowCount() || viewColumn >= table.getColumnCount()) {
+            return "past the end of the table";
+        }
+        int row = table.convertRowIndexToModel(viewRow);
+        int column = table.convertColumnIndexToModel(viewColumn);
+        if (column == EmployeeTableModel.TIP_SHARE_COLUMN) {
+            return "Tip Share is calculated";
+        }
+
+        int minutes = 0;
+        if (column == EmployeeTableModel.NAME_COLUMN) {
+            editNames.add(text.substring(start, end));
+        } else {
+            minutes = DurationFormat.parseMinutes(text, start, end);
+            if (minutes == EmployeeStore.INVALID_MINUTES) {
+                return EmployeeTableModel.COLUMN_NAMES[column];
+            }
+        }
+
+        if (editCount == editRows.length) {
+            editRows = Arrays.copyOf(editRows, editCount * 2);
+            editColumns = Arrays.copyOf(editColumns, editCount * 2);
+            editMinutes = Arrays.copyOf(editMinutes, editCount * 2);
+        }
+        editRows[editCount] = row;
+        editColumns[editCount] = column;
+        editMinutes[editCount] = minutes;
+        editCount++;
+        return null;
+    }
+
+    /**
+     * Apply every checked cell, telling the table's listeners once.
+     */
+    private void apply() {
+        int name = 0;
+        model.getHistory().mark("Paste");
+        model.beginUpdate();
+        try {
+            for (int i = 0; i < editCount; i++) {
+                if (editColumns[i] == EmployeeTableModel.NAME_COLUMN) {
+                    model.setName(editRows[i], editNames.get(name++));
+                } else {
+                    model.setMinutes(editRows[i], editColumns[i], editMinutes[i]);
+                }
+            }
+        } finally {
+            model.endUpdate();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package TipsGUI;
+
+/**
+ * A fixed-size block of employee rows, filled off the event dispatch thread and then added to the table in one step.
+ */
+public class RowBatch {
+    /** Each employee's id, or EmployeeStore.NO_ID for one to be given a new id when added. */
+    private final long[] ids;
+    private final String[] names;
+    /** minutes[row * MONTHS + month - 1] is the time worked by an employee in that month. */
+    private final int[] minutes;
+    private final long[] tipShares;
+    private int size;
+
+    public RowBatch(int capacity) {
+        ids = new long[capacity];
+        names = new String[capacity];
+        minutes = new int[capacity * EmployeeStore.MONTHS];
+        tipShares = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == names.length;
+    }
+
+    /**
+     * Add an employee with no hours worked; fill in their months with setMinutes.
+     * @param name The employee's name
+     * @param tipShare The tip share in pennies
+     * @return The employee's index in the batch
+     */
+    public int add(String name, long tipShare) {
+        int index = size++;
+        ids[index] = EmployeeStore.NO_ID;
+        names[index] = name;
+        tipShares[index] = tipShare;
+        for (int i = index * EmployeeStore.MONTHS; i < (index + 1) * EmployeeStore.MONTHS; i++) {
+            minutes[i] = 0;
+        }
+        return index;
+    }
+
+    /**
+     * Take back the employee added last, e.g. one whose line turned out not to be a whole row.
+     */
+    public void removeLast() {
+        names[--size] = null;
+    }
+
+    /**
+     * Add a copy of an employee from another batch, id and all.
+     * @param batch The batch to copy from
+     * @param index The employee's index in that batch
+     * @return The employee's index in this batch
+     */
+    public int addCopy(RowBatch batch, int index) {
+        int copy = add(batch.names[index], batch.tipShares[index]);
+        ids[copy] = batch.ids[index];
+        System.arraycopy(batch.minutes, index * EmployeeStore.MONTHS, minutes, copy * EmployeeStore.MONTHS, EmployeeStore.MONTHS);
+        return copy;
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    public void setId(int index, long id) {
+        ids[index] = id;
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public void setName(int index, String name) {
+        names[index] = name;
+    }
+
+    /**
+     * @param index The employee's index in the batch
+     * @param month The month number, 1 to 12
+     * @return The minutes worked, or EmployeeStore.INVALID_MINUTES for an unreadable value
+     */
+    public int getMinutes(int index, int month) {
+        return minutes[index * EmployeeStore.MONTHS + month - 1];
+    }
+
+    public void setMinutes(int index, int month, int value) {
+        minutes[index * EmployeeStore.MONTHS + month - 1] = value;
+    }
+
+    public long getTipShare(int index) {
+        return tipShares[index];
+    }
+
+    public void setTipShare(int index, long pennies) {
+        tipShares[index] = pennies;
+    }
+}
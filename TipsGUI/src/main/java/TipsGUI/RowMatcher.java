@@ -0,0 +1,39 @@
+package TipsGUI;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Matches the employees read by one import to the rows already in the table, in constant time each.
+ * An employee whose id belongs to a row with the same name is that row. Any other is matched by name,
+ * the nth employee in the file with a name going to the nth row with it, so people who share a name stay apart
+ * and importing the same file again matches every employee to the same row as before.
+ */
+public class RowMatcher {
+    private final EmployeeStore store;
+    /** How many employees with each name have been matched by name so far. */
+    private final Map<String, Integer> namesSeen = new HashMap<>();
+
+    /**
+     * @param store The employees to match against
+     */
+    public RowMatcher(EmployeeStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Match the next employee of the import. Must be called for every employee, in file order.
+     * @param id The employee's id in the file, or EmployeeStore.NO_ID if it has none
+     * @param name The employee's name
+     * @return The employee's row, or -1 if they are not in the table yet
+     */
+    public int match(long id, String name) {
+        int row = store.findRow(id);
+        if (row >= 0 && Objects.equals(store.getName(row), name)) {
+            return row;
+        }
+        int occurrence = namesSeen.merge(name, 1, Integer::sum) - 1;
+        return store.findRow(name, occurrence);
+    }
+}
@@ -0,0 +1,467 @@
+package TipsGUI;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * A binary snapshot of the employee table, saved alongside CSV export as a ".tips" file.
+ * Nothing is parsed when a snapshot is opened: the file is memory-mapped and each field is read straight from it,
+ * so even a very large ledger opens at once and can be read a row at a time without loading it into a table.
+ *
+ * The file is little-endian and laid out as:
+ * <pre>
+ * header   int magic "TIPS", int version, int rowCount, int months,
+ *          long recordsOffset, long namesOffset, long nameIndexOffset,
+ *          long journalSequence, long nextId, long seriesOffset, int year, int seriesCount
+ * records  rowCount fixed-width records of long id, int minutes[months] and long tipShare, in pennies
+ * names    every name in UTF-8, one after another
+ * index    int[rowCount + 1] where each name starts in the names, and where the last one ends
+ * series   seriesCount of int row, int entryCount, then entryCount of int year, byte month, byte day, int minutes
+ * </pre>
+ * The minutes in the records are for the months of the year shown, given in the header.
+ * Minutes of EmployeeStore.INVALID_MINUTES mark a month that could not be read as a duration.
+ * The series hold the days and other years of the employees that have them, as in EmployeeStore;
+ * a day of 0 is a month known only as a whole.
+ * The journal sequence is that of the last EditJournal entry the snapshot includes.
+ * Version 1 files have neither the ids nor the header fields after nameIndexOffset, and version 2 files
+ * have neither the year nor the series; both are still read.
+ */
+public class SnapshotFile {
+    public static final String EXTENSION = "tips";
+    public static final int VERSION = 3;
+
+    private static final int MAGIC = 0x54495053;
+    private static final int HEADER_SIZE = 72;
+    private static final int VERSION_2_HEADER_SIZE = 56;
+    private static final int RECORD_SIZE = Long.BYTES + EmployeeStore.MONTHS * Integer.BYTES + Long.BYTES;
+    private static final int VERSION_1_HEADER_SIZE = 40;
+    private static final int VERSION_1_RECORD_SIZE = EmployeeStore.MONTHS * Integer.BYTES + Long.BYTES;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int BATCH_SIZE = 4096;
+    private static final int PROGRESS_INTERVAL = 4096;
+    private static final int SERIES_ENTRY_SIZE = Integer.BYTES + 2 + Integer.BYTES;
+
+    private final int rowCount;
+    private final long journalSequence;
+    private final long nextId;
+    private final ByteBuffer records;
+    /** The record layout, which depends on the version. */
+    private final int recordSize;
+    private final int minutesOffset;
+    private final ByteBuffer names;
+    private final ByteBuffer nameIndex;
+    private final int year;
+    private final int seriesCount;
+    private final ByteBuffer series;
+
+    private SnapshotFile(Layout layout, ByteBuffer records, ByteBuffer names, ByteBuffer nameIndex, ByteBuffer series) {
+        this.rowCount = layout.rowCount;
+        this.journalSequence = layout.journalSequence;
+        this.nextId = layout.nextId;
+        this.records = records;
+        this.recordSize = layout.recordSize;
+        this.minutesOffset = layout.minutesOffset;
+        this.names = names;
+        this.nameIndex = nameIndex;
+        this.year = layout.year;
+        this.seriesCount = layout.seriesCount;
+        this.series = series;
+    }
+
+    /**
+     * Where everything is in a snapshot file, as read from its header.
+     */
+    static final class Layout {
+        final int version;
+        final int rowCount;
+        final long recordsOffset;
+        final long namesOffset;
+        final long nameIndexOffset;
+        final long journalSequence;
+        final long nextId;
+        final int recordSize;
+        /** Where the minutes start in a record, after the id if there is one. */
+        final int minutesOffset;
+        /** Where the series start, or 0 if there are none. */
+        final long seriesOffset;
+        /** The year of the months in the records, or 0 if not known. */
+        final int year;
+        final int seriesCount;
+
+        private Layout(ByteBuffer header) {
+            header.getInt();
+            version = header.getInt();
+            rowCount = header.getInt();
+            header.getInt();
+            recordsOffset = header.getLong();
+            namesOffset = header.getLong();
+            nameIndexOffset = header.getLong();
+            journalSequence = version == 1 ? 0 : header.getLong();
+            nextId = version == 1 ? EmployeeStore.NO_ID : header.getLong();
+            recordSize = version == 1 ? VERSION_1_RECORD_SIZE : RECORD_SIZE;
+            minutesOffset = version == 1 ? 0 : Long.BYTES;
+            seriesOffset = version < 3 ? 0 : header.getLong();
+            year = version < 3 ? 0 : header.getInt();
+            seriesCount = version < 3 ? 0 : header.getInt();
+        }
+
+        static int headerSize(int version) {
+            return version == 1 ? VERSION_1_HEADER_SIZE : version == 2 ? VERSION_2_HEADER_SIZE : HEADER_SIZE;
+        }
+
+        long recordsSize() {
+            return (long) rowCount * recordSize;
+        }
+
+        long nameIndexSize() {
+            return (rowCount + 1L) * Integer.BYTES;
+        }
+
+        /**
+         * Read and check a snapshot's header.
+         * @param channel The snapshot file
+         * @return The layout of the file
+         * @throws IOException If the file can't be read, isn't a snapshot, or is from a newer version
+         */
+        static Layout read(FileChannel channel) throws IOException {
+            long size = channel.size();
+            if (size < VERSION_1_HEADER_SIZE) {
+                throw new IOException("Not a snapshot file");
+            }
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(size, HEADER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // Read until the header is full
+            }
+            header.flip();
+
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a snapshot file");
+            }
+            int version = header.getInt(Integer.BYTES);
+            if (version > VERSION) {
+                throw new IOException("The snapshot is from a newer version (" + version + ")");
+            }
+            if (size < headerSize(version)) {
+                throw new IOException("The snapshot file is damaged");
+            }
+            int months = header.getInt(3 * Integer.BYTES);
+            Layout layout = new Layout(header);
+            if (layout.rowCount < 0 || months != EmployeeStore.MONTHS
+                    || layout.recordsOffset < headerSize(version)
+                    || layout.namesOffset < layout.recordsOffset + layout.recordsSize()
+                    || layout.nameIndexOffset < layout.namesOffset
+                    || layout.nameIndexOffset + layout.nameIndexSize() > size
+                    || layout.seriesCount < 0
+                    || (version >= 3 && (layout.seriesOffset < layout.nameIndexOffset + layout.nameIndexSize()
+                            || layout.seriesOffset > size))) {
+                throw new IOException("The snapshot file is damaged");
+            }
+            return layout;
+        }
+    }
+
+    /**
+     * Memory-map a snapshot for reading.
+     * The mapping stays valid after the file is closed, until the snapshot is garbage collected.
+     * @param path The snapshot to open
+     * @return The snapshot
+     * @throws IOException If the file can't be read, isn't a snapshot, or is from a newer version
+     */
+    public static SnapshotFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Layout layout = Layout.read(channel);
+            return new SnapshotFile(layout,
+                    map(channel, layout.recordsOffset, layout.recordsSize()),
+                    map(channel, layout.namesOffset, layout.nameIndexOffset - layout.namesOffset),
+                    map(channel, layout.nameIndexOffset, layout.nameIndexSize()),
+                    layout.seriesOffset == 0 ? null : map(channel, layout.seriesOffset, channel.size() - layout.seriesOffset));
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("The snapshot file is too large to open at once; browse it a page at a time instead");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Save a store as a snapshot, synced to disk.
+     * @param store The employees to save; must not change while writing
+     * @param path The full path of the file to write
+     * @param cancelled Checked every few thousand rows; the file is deleted if it returns true
+     * @param progress Receives the percentage of rows written so far
+     * @return The number of bytes written
+     * @throws IOException If the file can't be written, or the names are too long to index
+     */
+    public static long write(EmployeeStore store, Path path, BooleanSupplier cancelled, IntConsumer progress) throws IOException {
+        return write(store, 0, path, cancelled, progress);
+    }
+
+    /**
+     * Save a store as a snapshot that includes a journal up to a point.
+     * @param store The employees to save; must not change while writing
+     * @param journalSequence The sequence of the last journal entry applied to the store, or 0
+     * @param path The full path of the file to write
+     * @param cancelled Checked every few thousand rows; the file is deleted if it returns true
+     * @param progress Receives the percentage of rows written so far
+     * @return The number of bytes written
+     * @throws IOException If the file can't be written, or the names are too long to index
+     */
+    public static long write(EmployeeStore store, long journalSequence, Path path,
+                             BooleanSupplier cancelled, IntConsumer progress) throws IOException {
+        int rowCount = store.getRowCount();
+        long recordsOffset = HEADER_SIZE;
+        long namesOffset = recordsOffset + (long) rowCount * RECORD_SIZE;
+        boolean stopped = false;
+        long written;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            // The header is written last, once the offsets are known
+            channel.position(recordsOffset);
+
+            for (int row = 0; row < rowCount && !stopped; row++) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    drain(channel, buffer);
+                }
+                buffer.putLong(store.getId(row));
+                for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+                    buffer.putInt(store.getMinutes(row, month));
+                }
+                buffer.putLong(store.getTipShare(row));
+                if (row % PROGRESS_INTERVAL == 0) {
+                    stopped = cancelled.getAsBoolean();
+                    progress.accept((int) ((long) row * 50 / rowCount));
+                }
+            }
+
+            int[] nameStarts = new int[rowCount + 1];
+            long nameBytes = 0;
+            for (int row = 0; row < rowCount && !stopped; row++) {
+                if (nameBytes > Integer.MAX_VALUE) {
+                    throw new IOException("The names are too long to save as a snapshot");
+                }
+                nameStarts[row] = (int) nameBytes;
+                String name = store.getName(row);
+                byte[] encoded = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+                nameBytes += encoded.length;
+                for (int offset = 0; offset < encoded.length; ) {
+                    if (!buffer.hasRemaining()) {
+                        drain(channel, buffer);
+                    }
+                    int length = Math.min(buffer.remaining(), encoded.length - offset);
+                    buffer.put(encoded, offset, length);
+                    offset += length;
+                }
+                if (row % PROGRESS_INTERVAL == 0) {
+                    stopped = cancelled.getAsBoolean();
+                    progress.accept(50 + (int) ((long) row * 50 / rowCount));
+                }
+            }
+            if (nameBytes > Integer.MAX_VALUE) {
+                throw new IOException("The names are too long to save as a snapshot");
+            }
+            nameStarts[rowCount] = (int) nameBytes;
+
+            long nameIndexOffset = namesOffset + nameBytes;
+            for (int start : nameStarts) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    drain(channel, buffer);
+                }
+                buffer.putInt(start);
+            }
+
+            // Only the employees with days or other years have a series
+            long seriesOffset = nameIndexOffset + (rowCount + 1L) * Integer.BYTES;
+            int seriesCount = 0;
+            for (int row = 0; row < rowCount && !stopped; row++) {
+                TimeSeries series = store.getSeries(row);
+                if (series == null || series.isEmpty()) {
+                    continue;
+                }
+                if (buffer.remaining() < 2 * Integer.BYTES) {
+                    drain(channel, buffer);
+                }
+                buffer.putInt(row).putInt(series.getEntryCount());
+                try {
+                    series.forEach((year, month, day, minutes) -> {
+                        if (buffer.remaining() < SERIES_ENTRY_SIZE) {
+                            try {
+                                drain(channel, buffer);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                        buffer.putInt(year).put((byte) month).put((byte) day).putInt(minutes);
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                seriesCount++;
+            }
+            drain(channel, buffer);
+            written = channel.position();
+
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(rowCount).putInt(EmployeeStore.MONTHS)
+                    .putLong(recordsOffset).putLong(namesOffset).putLong(nameIndexOffset)
+                    .putLong(journalSequence).putLong(store.getNextId())
+                    .putLong(seriesOffset).putInt(store.getYear()).putInt(seriesCount);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+            // On disk before returning, so a snapshot can safely replace the journal entries it includes
+            channel.force(true);
+        }
+        if (stopped) {
+            Files.deleteIfExists(path);
+        }
+        return written;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return The number of employees saved with days or other years, which only loadInto reads
+     */
+    public int getSeriesCount() {
+        return seriesCount;
+    }
+
+    /**
+     * @return The year of the months saved for each employee, or 0 in a snapshot from before years were kept
+     */
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     * @return The sequence of the last journal entry the snapshot includes, or 0
+     */
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    /**
+     * @return The employee's id, or EmployeeStore.NO_ID in a version 1 snapshot
+     */
+    public long getId(int row) {
+        return minutesOffset == 0 ? EmployeeStore.NO_ID : records.getLong(row * recordSize);
+    }
+
+    public String getName(int row) {
+        int start = nameIndex.getInt(row * Integer.BYTES);
+        int end = nameIndex.getInt((row + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        ByteBuffer slice = names.duplicate();
+        slice.position(start);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param row The employee's row
+     * @param month The month, 1 to 12
+     * @return The minutes worked that month, or EmployeeStore.INVALID_MINUTES
+     */
+    public int getMinutes(int row, int month) {
+        return records.getInt(row * recordSize + minutesOffset + (month - 1) * Integer.BYTES);
+    }
+
+    /**
+     * @return The employee's tip share in pennies
+     */
+    public long getTipShare(int row) {
+        return records.getLong(row * recordSize + minutesOffset + EmployeeStore.MONTHS * Integer.BYTES);
+    }
+
+    /**
+     * Restore the saved table into a store, keeping every employee's id, days and other years.
+     * The store is switched to show the year the snapshot was showing.
+     * @param store The store to add the employees to, normally empty
+     */
+    public void loadInto(EmployeeStore store) {
+        if (year != 0) {
+            store.setYear(year);
+        }
+        int firstRow = store.getRowCount();
+        store.ensureCapacity(firstRow + rowCount);
+        int[] monthlyMinutes = new int[EmployeeStore.MONTHS];
+        for (int row = 0; row < rowCount; row++) {
+            for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+                monthlyMinutes[month - 1] = getMinutes(row, month);
+            }
+            store.addRow(getId(row), getName(row), monthlyMinutes, getTipShare(row));
+        }
+        store.reserveIds(nextId);
+
+        ByteBuffer entries = series == null ? null : series.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < seriesCount; i++) {
+            int row = entries.getInt();
+            int entryCount = entries.getInt();
+            TimeSeries days = new TimeSeries();
+            for (int entry = 0; entry < entryCount; entry++) {
+                int entryYear = entries.getInt();
+                int month = entries.get();
+                int day = entries.get();
+                int minutes = entries.getInt();
+                if (day == 0) {
+                    days.setMonth(entryYear, month, minutes);
+                } else {
+                    days.setDay(LocalDate.of(entryYear, month, day), minutes);
+                }
+            }
+            store.setSeries(firstRow + row, days);
+        }
+    }
+
+    /**
+     * Read every row, handing them on in batches in the same way as the CSV importers.
+     * Each employee keeps the id saved with them, so merging a snapshot into the table matches them to their rows.
+     * As with a CSV file, only the months of the year the snapshot shows are read; loadInto restores the rest.
+     * @param sink Receives the batches, on the calling thread
+     * @param cancelled Checked between batches; the import stops early once it returns true
+     * @param progress Receives the percentage of rows handed on so far
+     * @return The number of rows imported
+     */
+    public long importTo(Consumer<RowBatch> sink, BooleanSupplier cancelled, IntConsumer progress) {
+        int row = 0;
+        while (row < rowCount && !cancelled.getAsBoolean()) {
+            RowBatch batch = new RowBatch(Math.min(BATCH_SIZE, rowCount - row));
+            while (!batch.isFull()) {
+                int index = batch.add(getName(row), getTipShare(row));
+                batch.setId(index, getId(row));
+                for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+                    batch.setMinutes(index, month, getMinutes(row, month));
+                }
+                row++;
+            }
+            sink.accept(batch);
+            progress.accept((int) ((long) row * 100 / rowCount));
+        }
+        return row;
+    }
+}
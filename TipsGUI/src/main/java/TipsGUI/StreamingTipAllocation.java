@@ -0,0 +1,170 @@
+package TipsGUI;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * The same split of the tips as TipAllocator, worked out a page at a time for rosters too large to hold in memory.
+ * Rather than keeping every share, it keeps the few numbers needed to work out any one employee's share from
+ * their minutes: the total minutes, and the smallest remainder that still earned a leftover penny.
+ * That remainder is found by a radix select over a fixed number of passes through the pages,
+ * counting remainders in a fixed-size histogram, so memory use doesn't depend on the number of employees.
+ */
+public class StreamingTipAllocation {
+    private static final int RADIX_BITS = 16;
+    private static final int BUCKETS = 1 << RADIX_BITS;
+
+    private final int startingMonth;
+    private final int endingMonth;
+    private final long poolPennies;
+    private final long totalMinutes;
+    private final long poolQuotient;
+    private final long poolRemainder;
+    /** Employees whose remainder is above this get a leftover penny, as do those at it up to the cutoff row. */
+    private final long thresholdRemainder;
+    private final int cutoffRow;
+
+    private StreamingTipAllocation(int startingMonth, int endingMonth, long poolPennies, long totalMinutes,
+                                   long thresholdRemainder, int cutoffRow) {
+        this.startingMonth = startingMonth;
+        this.endingMonth = endingMonth;
+        this.poolPennies = poolPennies;
+        this.totalMinutes = totalMinutes;
+        this.poolQuotient = totalMinutes == 0 ? 0 : poolPennies / totalMinutes;
+        this.poolRemainder = totalMinutes == 0 ? 0 : poolPennies % totalMinutes;
+        this.thresholdRemainder = thresholdRemainder;
+        this.cutoffRow = cutoffRow;
+    }
+
+    /**
+     * Split the tips for a month range, reading through the snapshot a few times.
+     * @param snapshot The employees
+     * @param startingMonth The month to start from, 1 to 12
+     * @param endingMonth The month to end at, 1 to 12; may be before the starting month to wrap around the year
+     * @param poolPennies The tips available, in pennies
+     * @return The split, to work out each employee's share from
+     * @throws IOException If the snapshot can't be read
+     */
+    public static StreamingTipAllocation calculate(PagedSnapshot snapshot, int startingMonth, int endingMonth,
+                                                   long poolPennies) throws IOException {
+        long totalMinutes = 0;
+        for (int page = 0; page < snapshot.getPageCount(); page++) {
+            RowBatch batch = snapshot.readPage(page);
+            for (int i = 0; i < batch.size(); i++) {
+                totalMinutes += minutesInRange(batch, i, startingMonth, endingMonth);
+            }
+        }
+        if (totalMinutes == 0 || poolPennies <= 0) {
+            return new StreamingTipAllocation(startingMonth, endingMonth, poolPennies, totalMinutes, Long.MAX_VALUE, -1);
+        }
+
+        // Find the leftover pennies while counting the remainders by their top bits, then narrow down
+        // to the remainder of the last employee to get one, RADIX_BITS at a time
+        StreamingTipAllocation whole = new StreamingTipAllocation(
+                startingMonth, endingMonth, poolPennies, totalMinutes, Long.MAX_VALUE, -1);
+        int bits = 64 - Long.numberOfLeadingZeros(totalMinutes - 1);
+        long knownPrefix = 0;
+        int knownBits = 0;
+        long leftover = -1;
+        long[] histogram = new long[BUCKETS];
+        while (knownBits < bits) {
+            int shift = Math.max(bits - knownBits - RADIX_BITS, 0);
+            int width = bits - knownBits - shift;
+            Arrays.fill(histogram, 0);
+            long allocated = 0;
+            for (int page = 0; page < snapshot.getPageCount(); page++) {
+                RowBatch batch = snapshot.readPage(page);
+                for (int i = 0; i < batch.size(); i++) {
+                    long[] division = whole.divide(minutesInRange(batch, i, startingMonth, endingMonth));
+                    allocated += division[0];
+                    long remainder = division[1];
+                    if (remainder > 0 && remainder >>> (shift + width) == knownPrefix) {
+                        histogram[(int) (remainder >>> shift) & ((1 << width) - 1)]++;
+                    }
+                }
+            }
+            if (leftover < 0) {
+                leftover = poolPennies - allocated;
+                if (leftover == 0) {
+                    return whole;
+                }
+            }
+
+            // The bucket holding the leftover-th largest remainder among those still in the running
+            int bucket = (1 << width) - 1;
+            while (histogram[bucket] < leftover) {
+                leftover -= histogram[bucket--];
+            }
+            knownPrefix = (knownPrefix << width) | bucket;
+            knownBits += width;
+        }
+
+        // Ties at the threshold go to the earlier rows, as many as there are pennies left for them
+        long threshold = knownPrefix;
+        int cutoffRow = -1;
+        long atThreshold = 0;
+        for (int page = 0; page < snapshot.getPageCount() && atThreshold < leftover; page++) {
+            RowBatch batch = snapshot.readPage(page);
+            for (int i = 0; i < batch.size() && atThreshold < leftover; i++) {
+                if (whole.divide(minutesInRange(batch, i, startingMonth, endingMonth))[1] == threshold) {
+                    atThreshold++;
+                    cutoffRow = page * PagedSnapshot.PAGE_ROWS + i;
+                }
+            }
+        }
+        return new StreamingTipAllocation(startingMonth, endingMonth, poolPennies, totalMinutes, threshold, cutoffRow);
+    }
+
+    /**
+     * An employee's minutes in a month range, with unreadable months counting as none.
+     */
+    static long minutesInRange(RowBatch batch, int index, int startingMonth, int endingMonth) {
+        long total = 0;
+        int month = startingMonth;
+        while (true) {
+            total += Math.max(batch.getMinutes(index, month), 0);
+            if (month == endingMonth) {
+                return total;
+            }
+            month = month % EmployeeStore.MONTHS + 1;
+        }
+    }
+
+    /**
+     * Whole pennies of an employee's exact share, and the fraction of a penny left over, in 1/totalMinutes pennies.
+     */
+    private long[] divide(long worked) {
+        // pool = q * total + r, so pool * worked / total = q * worked + r * worked / total
+        long share = poolQuotient * worked;
+        if (worked == 0 || poolRemainder <= Long.MAX_VALUE / worked) {
+            long product = poolRemainder * worked;
+            return new long[]{share + product / totalMinutes, product % totalMinutes};
+        }
+        BigInteger[] division = BigInteger.valueOf(poolRemainder).multiply(BigInteger.valueOf(worked))
+                .divideAndRemainder(BigInteger.valueOf(totalMinutes));
+        return new long[]{share + division[0].longValueExact(), division[1].longValueExact()};
+    }
+
+    /**
+     * Work out an employee's share.
+     * @param batch The page holding the employee
+     * @param index The employee's index in the page
+     * @param row The employee's row in the whole roster
+     * @return The share in pennies
+     */
+    public long getShare(RowBatch batch, int index, int row) {
+        if (totalMinutes == 0 || poolPennies <= 0) {
+            return 0;
+        }
+        long[] division = divide(minutesInRange(batch, index, startingMonth, endingMonth));
+        long remainder = division[1];
+        boolean leftoverPenny = remainder > 0
+                && (remainder > thresholdRemainder || (remainder == thresholdRemainder && row <= cutoffRow));
+        return division[0] + (leftoverPenny ? 1 : 0);
+    }
+
+    public long getTotalMinutes() {
+        return totalMinutes;
+    }
+}
@@ -158,6 +158,8 @@ public class TableCellListener implements PropertyChangeListener, Runnable
 
         if (newValue == null || ! newValue.equals(oldValue))
         {
+            Metrics.count("table.edits");
+
             //  Make a copy of the data in case another cell starts editing
             //  while processing this change
 
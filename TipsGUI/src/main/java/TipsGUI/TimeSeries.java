@@ -0,0 +1,277 @@
+package TipsGUI;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * One employee's minutes worked, day by day, over any number of years.
+ * Alongside the days, each year keeps the total of each of its months and of the whole year. These are updated
+ * by the difference whenever a day changes, so reading a month or a year costs nothing, and any date range is
+ * totalled from whole years and months plus the odd days at either end.
+ *
+ * A month can also be known only as a whole, e.g. when typed into a month cell. Its time is then counted
+ * on its first day, and the month is split into days once any other day of it is set.
+ */
+public class TimeSeries {
+    /** The years with any time recorded, in order, and their totals. */
+    private int[] years = new int[0];
+    private YearTotals[] totals = new YearTotals[0];
+
+    private static final class YearTotals {
+        final long[] months = new long[EmployeeStore.MONTHS];
+        /** days[month - 1][day - 1], or null while the month is only known as a whole. */
+        final int[][] days = new int[EmployeeStore.MONTHS][];
+        long total;
+
+        YearTotals copy() {
+            YearTotals copy = new YearTotals();
+            System.arraycopy(months, 0, copy.months, 0, months.length);
+            for (int month = 0; month < days.length; month++) {
+                copy.days[month] = days[month] == null ? null : days[month].clone();
+            }
+            copy.total = total;
+            return copy;
+        }
+    }
+
+    /**
+     * Receives the time in a series, one entry at a time.
+     */
+    public interface EntryConsumer {
+        /**
+         * @param year The year
+         * @param month The month, 1 to 12
+         * @param day The day of the month, or 0 for a month known only as a whole
+         * @param minutes The minutes worked, never 0
+         */
+        void accept(int year, int month, int day, int minutes);
+    }
+
+    /**
+     * @return A series holding the same time that later changes to this one won't touch
+     */
+    public TimeSeries copy() {
+        TimeSeries copy = new TimeSeries();
+        copy.years = years.clone();
+        copy.totals = new YearTotals[totals.length];
+        for (int i = 0; i < totals.length; i++) {
+            copy.totals[i] = totals[i].copy();
+        }
+        return copy;
+    }
+
+    private YearTotals find(int year) {
+        int index = Arrays.binarySearch(years, year);
+        return index < 0 ? null : totals[index];
+    }
+
+    private YearTotals findOrAdd(int year) {
+        int index = Arrays.binarySearch(years, year);
+        if (index >= 0) {
+            return totals[index];
+        }
+        int insertAt = -index - 1;
+        int[] newYears = new int[years.length + 1];
+        YearTotals[] newTotals = new YearTotals[totals.length + 1];
+        System.arraycopy(years, 0, newYears, 0, insertAt);
+        System.arraycopy(totals, 0, newTotals, 0, insertAt);
+        System.arraycopy(years, insertAt, newYears, insertAt + 1, years.length - insertAt);
+        System.arraycopy(totals, insertAt, newTotals, insertAt + 1, totals.length - insertAt);
+        newYears[insertAt] = year;
+        newTotals[insertAt] = new YearTotals();
+        years = newYears;
+        totals = newTotals;
+        return newTotals[insertAt];
+    }
+
+    /**
+     * @param date The day
+     * @return The minutes worked that day
+     */
+    public int getDay(LocalDate date) {
+        YearTotals year = find(date.getYear());
+        if (year == null) {
+            return 0;
+        }
+        int[] days = year.days[date.getMonthValue() - 1];
+        if (days == null) {
+            return date.getDayOfMonth() == 1 ? (int) year.months[date.getMonthValue() - 1] : 0;
+        }
+        return days[date.getDayOfMonth() - 1];
+    }
+
+    /**
+     * Set the minutes worked on a day, updating the totals of its month and year.
+     * @param date The day
+     * @param minutes The minutes worked; not negative
+     * @return The minutes worked that day before
+     */
+    public int setDay(LocalDate date, int minutes) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException("Minutes must not be negative: " + minutes);
+        }
+        YearTotals year = findOrAdd(date.getYear());
+        int month = date.getMonthValue() - 1;
+        int[] days = year.days[month];
+        if (days == null) {
+            // The month's time so far stays on its first day
+            days = new int[date.lengthOfMonth()];
+            days[0] = (int) year.months[month];
+            year.days[month] = days;
+        }
+        int oldMinutes = days[date.getDayOfMonth() - 1];
+        days[date.getDayOfMonth() - 1] = minutes;
+        year.months[month] += minutes - oldMinutes;
+        year.total += minutes - oldMinutes;
+        return oldMinutes;
+    }
+
+    /**
+     * @param year The year
+     * @param month The month, 1 to 12
+     * @return The minutes worked in the month
+     */
+    public long getMonth(int year, int month) {
+        YearTotals totals = find(year);
+        return totals == null ? 0 : totals.months[month - 1];
+    }
+
+    /**
+     * Set the minutes worked in a month as a whole, replacing any days set in it.
+     * @param year The year
+     * @param month The month, 1 to 12
+     * @param minutes The minutes worked; not negative
+     */
+    public void setMonth(int year, int month, int minutes) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException("Minutes must not be negative: " + minutes);
+        }
+        YearTotals totals = minutes == 0 ? find(year) : findOrAdd(year);
+        if (totals == null) {
+            return;
+        }
+        totals.total += minutes - totals.months[month - 1];
+        totals.months[month - 1] = minutes;
+        totals.days[month - 1] = null;
+    }
+
+    /**
+     * @param year The year
+     * @return The minutes worked in the year
+     */
+    public long getYear(int year) {
+        YearTotals totals = find(year);
+        return totals == null ? 0 : totals.total;
+    }
+
+    /**
+     * Total the minutes worked between two days, from the year and month totals wherever a range covers them whole.
+     * @param from The first day, inclusive
+     * @param to The last day, inclusive
+     * @return The minutes worked, or 0 if the last day is before the first
+     */
+    public long getMinutesBetween(LocalDate from, LocalDate to) {
+        long total = 0;
+        int first = Arrays.binarySearch(years, from.getYear());
+        for (int i = first < 0 ? -first - 1 : first; i < years.length && years[i] <= to.getYear(); i++) {
+            int year = years[i];
+            boolean fromStartOfYear = year > from.getYear() || from.getDayOfYear() == 1;
+            boolean toEndOfYear = year < to.getYear() || to.getDayOfYear() == to.lengthOfYear();
+            if (fromStartOfYear && toEndOfYear) {
+                total += totals[i].total;
+                continue;
+            }
+            int firstMonth = year > from.getYear() ? 1 : from.getMonthValue();
+            int lastMonth = year < to.getYear() ? EmployeeStore.MONTHS : to.getMonthValue();
+            for (int month = firstMonth; month <= lastMonth; month++) {
+                int firstDay = year == from.getYear() && month == from.getMonthValue() ? from.getDayOfMonth() : 1;
+                int lastDay = year == to.getYear() && month == to.getMonthValue()
+                        ? to.getDayOfMonth() : YearMonth.of(year, month).lengthOfMonth();
+                total += minutesInMonth(totals[i], month, firstDay, lastDay);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The minutes worked between two days of a month, inclusive, from the month's total if it is covered whole.
+     */
+    private static long minutesInMonth(YearTotals year, int month, int firstDay, int lastDay) {
+        int[] days = year.days[month - 1];
+        if (days == null) {
+            return firstDay == 1 ? year.months[month - 1] : 0;
+        }
+        if (firstDay == 1 && lastDay == days.length) {
+            return year.months[month - 1];
+        }
+        long total = 0;
+        for (int day = firstDay; day <= lastDay; day++) {
+            total += days[day - 1];
+        }
+        return total;
+    }
+
+    /**
+     * @return True if no time is recorded
+     */
+    public boolean isEmpty() {
+        for (YearTotals year : totals) {
+            if (year.total != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param other Another series
+     * @return True if both have the same time recorded on the same days and whole months
+     */
+    public boolean hasSameTime(TimeSeries other) {
+        return Arrays.equals(entries(), other.entries());
+    }
+
+    /**
+     * @return Every entry forEach hands on, each as its date in the high half and its minutes in the low half
+     */
+    private long[] entries() {
+        long[] entries = new long[getEntryCount()];
+        int[] next = new int[1];
+        forEach((year, month, day, minutes) ->
+                entries[next[0]++] = ((long) ((year * 16 + month) * 32 + day) << 32) | (minutes & 0xFFFFFFFFL));
+        return entries;
+    }
+
+    /**
+     * @return The number of entries forEach will hand on
+     */
+    public int getEntryCount() {
+        int[] count = new int[1];
+        forEach((year, month, day, minutes) -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Hand on every day or whole month with time recorded, in date order.
+     * @param consumer Receives the entries
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < years.length; i++) {
+            for (int month = 1; month <= EmployeeStore.MONTHS; month++) {
+                int[] days = totals[i].days[month - 1];
+                if (days == null) {
+                    if (totals[i].months[month - 1] != 0) {
+                        consumer.accept(years[i], month, 0, (int) totals[i].months[month - 1]);
+                    }
+                    continue;
+                }
+                for (int day = 1; day <= days.length; day++) {
+                    if (days[day - 1] != 0) {
+                        consumer.accept(years[i], month, day, days[day - 1]);
+                    }
+                }
+            }
+        }
+    }
+}
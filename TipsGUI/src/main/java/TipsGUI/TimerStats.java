@@ -0,0 +1,48 @@
+package TipsGUI;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The totals of one of the Metrics timers at a moment.
+ */
+public class TimerStats {
+    private final String name;
+    private final long count;
+    private final long totalMillis;
+    private final long maxMillis;
+
+    @ConstructorProperties({"name", "count", "totalMillis", "maxMillis"})
+    public TimerStats(String name, long count, long totalMillis, long maxMillis) {
+        this.name = name;
+        this.count = count;
+        this.totalMillis = totalMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The number of times recorded
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    /**
+     * @return The longest time recorded
+     */
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d in %d ms, longest %d ms", name, count, totalMillis, maxMillis);
+    }
+}
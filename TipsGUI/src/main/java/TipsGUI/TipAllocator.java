@@ -0,0 +1,119 @@
+package TipsGUI;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Splits a pool of tips between employees in proportion to the minutes they worked, in whole pennies.
+ * Uses the largest remainder method: everyone gets the whole pennies of their exact share, and the pennies
+ * left over go one each to the employees with the largest fractions, so the shares always add up to the pool.
+ * Ties go to the earlier row.
+ *
+ * An allocator reuses its working arrays between calls, so it should not be shared between threads.
+ */
+public class TipAllocator {
+    private long[] remainders = new long[0];
+    private int[] order = new int[0];
+
+    /**
+     * Split the pool.
+     * @param minutes The minutes worked by each employee; negative values count as none
+     * @param count The number of employees, from the start of the arrays
+     * @param poolPennies The tips available, in pennies
+     * @param shares Receives each employee's share, in pennies
+     * @return The total minutes worked; if it is 0, every share is 0 and the pool is not split
+     */
+    public long allocate(long[] minutes, int count, long poolPennies, long[] shares) {
+        long totalMinutes = 0;
+        for (int i = 0; i < count; i++) {
+            totalMinutes += Math.max(minutes[i], 0);
+        }
+        if (totalMinutes == 0 || poolPennies <= 0) {
+            Arrays.fill(shares, 0, count, 0);
+            return totalMinutes;
+        }
+
+        if (remainders.length < count) {
+            remainders = new long[count];
+            order = new int[count];
+        }
+
+        // Whole pennies of each exact share, pool * minutes / total, keeping what's left over
+        long allocated = 0;
+        int candidates = 0;
+        long poolQuotient = poolPennies / totalMinutes;
+        long poolRemainder = poolPennies % totalMinutes;
+        for (int i = 0; i < count; i++) {
+            long worked = Math.max(minutes[i], 0);
+            // pool = q * total + r, so pool * worked / total = q * worked + r * worked / total
+            long share = poolQuotient * worked;
+            long remainder;
+            if (worked == 0 || poolRemainder <= Long.MAX_VALUE / worked) {
+                long product = poolRemainder * worked;
+                share += product / totalMinutes;
+                remainder = product % totalMinutes;
+            } else {
+                BigInteger[] division = BigInteger.valueOf(poolRemainder).multiply(BigInteger.valueOf(worked))
+                        .divideAndRemainder(BigInteger.valueOf(totalMinutes));
+                share += division[0].longValueExact();
+                remainder = division[1].longValueExact();
+            }
+            shares[i] = share;
+            allocated += share;
+            if (remainder > 0) {
+                remainders[i] = remainder;
+                order[candidates++] = i;
+            }
+        }
+
+        // Fewer pennies are left over than there are employees with a fraction of a penny owed
+        int leftover = (int) (poolPennies - allocated);
+        if (leftover > 0) {
+            selectLargest(candidates, leftover);
+            for (int k = 0; k < leftover; k++) {
+                shares[order[k]]++;
+            }
+        }
+        return totalMinutes;
+    }
+
+    /**
+     * Partially order the candidates so the k with the largest remainders come first, in linear time on average.
+     */
+    private void selectLargest(int candidates, int k) {
+        int low = 0;
+        int high = candidates - 1;
+        while (low < high) {
+            int pivot = order[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (ranksBefore(order[i], pivot)) {
+                    i++;
+                }
+                while (ranksBefore(pivot, order[j])) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            if (k - 1 <= j) {
+                high = j;
+            } else if (k - 1 >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Whether one employee is owed a leftover penny before another: a larger remainder, then the earlier row.
+     */
+    private boolean ranksBefore(int a, int b) {
+        return remainders[a] > remainders[b] || (remainders[a] == remainders[b] && a < b);
+    }
+}
@@ -0,0 +1,156 @@
+package TipsGUI;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Calculates tip shares for CSV files without a window, e.g. for a nightly job on a server.
+ * Each input file in the layout CsvExporter writes is read, its tips split for a month range with the same calculation
+ * as the window, and written out again with the Tip Share column filled in. Files are processed in parallel.
+ *
+ * Usage: TipsBatch --tips AMOUNT [--from MONTH] [--to MONTH] [--out DIRECTORY] [--threads N] FILE...
+ */
+public class TipsBatch {
+    private static final String USAGE =
+            "Usage: TipsBatch --tips AMOUNT [--from MONTH] [--to MONTH] [--out DIRECTORY] [--threads N] FILE...\n"
+            + "  --tips     The tips available in each file, e.g. 1234.56\n"
+            + "  --from     The month to start from, by name or number (default January)\n"
+            + "  --to       The month to end at, by name or number (default December)\n"
+            + "  --out      The directory to write to (default: next to each input, as NAME-tips.csv)\n"
+            + "  --threads  The number of files to process at once (default: one per core)";
+
+    private final long tipsPennies;
+    private final int startingMonth;
+    private final int endingMonth;
+    private final Path outputDirectory;
+
+    public TipsBatch(long tipsPennies, int startingMonth, int endingMonth, Path outputDirectory) {
+        this.tipsPennies = tipsPennies;
+        this.startingMonth = startingMonth;
+        this.endingMonth = endingMonth;
+        this.outputDirectory = outputDirectory;
+    }
+
+    public static void main(String[] args) {
+        long tips = -1;
+        int from = 1;
+        int to = 12;
+        Path out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> files = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--tips":
+                        tips = MoneyFormat.parseAmount(args[++i]);
+                        break;
+                    case "--from":
+                        from = TipsCalculator.monthNumber(args[++i]);
+                        break;
+                    case "--to":
+                        to = TipsCalculator.monthNumber(args[++i]);
+                        break;
+                    case "--out":
+                        out = Paths.get(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        files.add(Paths.get(args[i]));
+                        break;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            tips = -1;
+        }
+        if (tips < 0 || from == 0 || to == 0 || threads < 1 || files.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        TipsBatch batch = new TipsBatch(tips, from, to, out);
+        System.exit(batch.run(files, threads) ? 0 : 1);
+    }
+
+    /**
+     * Process every file, reporting each failure and the overall throughput to the console.
+     * @param files The input files
+     * @param threads The number of files to process at once
+     * @return True if every file was processed
+     */
+    public boolean run(List<Path> files, int threads) {
+        if (outputDirectory != null) {
+            try {
+                Files.createDirectories(outputDirectory);
+            } catch (IOException e) {
+                System.err.println("Cannot create " + outputDirectory + ": " + e.getMessage());
+                return false;
+            }
+        }
+
+        long started = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+        List<Future<long[]>> results = new ArrayList<>();
+        for (Path file : files) {
+            results.add(executor.submit(() -> process(file)));
+        }
+        executor.shutdown();
+
+        boolean succeeded = true;
+        long rows = 0;
+        long bytesRead = 0;
+        long charsWritten = 0;
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                long[] counts = results.get(i).get();
+                rows += counts[0];
+                bytesRead += counts[1];
+                charsWritten += counts[2];
+            } catch (ExecutionException e) {
+                succeeded = false;
+                System.err.println(files.get(i) + ": " + e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        double seconds = Math.max(System.nanoTime() - started, 1) / 1e9;
+        System.out.printf("%d files, %d rows in %.2f s: %.0f rows/s, %.1f MB/s read, %.1f MB/s written%n",
+                files.size(), rows, seconds, rows / seconds,
+                bytesRead / seconds / (1 << 20), charsWritten / seconds / (1 << 20));
+        return succeeded;
+    }
+
+    /**
+     * Read a file, split its tips and write the result.
+     * @return The number of rows, bytes read and characters written
+     */
+    private long[] process(Path file) throws IOException {
+        EmployeeStore store = new EmployeeStore();
+        long rows = new ParallelCsvImporter(file).importTo(store::addRows, () -> false, percent -> { });
+
+        TipsCalculator.calculate(store, startingMonth, endingMonth, tipsPennies, new TipAllocator());
+
+        long written = CsvExporter.write(store, outputPath(file), () -> false, percent -> { });
+        return new long[]{rows, Files.size(file), written};
+    }
+
+    private Path outputPath(Path input) {
+        String name = input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String outputName = (dot > 0 ? name.substring(0, dot) : name) + "-tips.csv";
+        Path directory = outputDirectory != null ? outputDirectory : input.toAbsolutePath().getParent();
+        return directory.resolve(outputName);
+    }
+}
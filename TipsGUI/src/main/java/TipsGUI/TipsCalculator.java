@@ -0,0 +1,92 @@
+package TipsGUI;
+
+import java.time.LocalDate;
+
+/**
+ * The tip calculation shared by the window and the batch mode: total each employee's minutes
+ * over a month range or between two dates, then split the tips between them in proportion.
+ */
+public final class TipsCalculator {
+    private TipsCalculator() {
+    }
+
+    /**
+     * Calculate the total minutes of each employee in a month range.
+     * @param store The employees
+     * @param startingMonthIndex The month to start from, 1 to 12
+     * @param endingMonthIndex The month to end at, 1 to 12; may be before the starting month to wrap around the year
+     * @return The total minutes worked by each employee, indexed by row
+     */
+    public static long[] totalMinutes(EmployeeStore store, int startingMonthIndex, int endingMonthIndex) {
+        long[] totals = new long[store.getRowCount()];
+        // Each employee's total for any range, wrapped or not, comes straight from their running totals
+        store.getMinutesInRange(startingMonthIndex, endingMonthIndex, totals);
+        return totals;
+    }
+
+    /**
+     * Calculate the total minutes of each employee between two dates, which may be in different years.
+     * @param store The employees
+     * @param from The first day, inclusive
+     * @param to The last day, inclusive
+     * @return The total minutes worked by each employee, indexed by row
+     */
+    public static long[] totalMinutes(EmployeeStore store, LocalDate from, LocalDate to) {
+        long[] totals = new long[store.getRowCount()];
+        // Whole years and months come from each employee's totals; only the days at either end are added up
+        for (int row = 0; row < totals.length; row++) {
+            totals[row] = store.getMinutesBetween(row, from, to);
+        }
+        return totals;
+    }
+
+    /**
+     * Split the tips in whole pennies, so the shares always add up to the tips available.
+     * @param totalMinutes The minutes worked by each employee
+     * @param tipsPennies The tips available, in pennies
+     * @param allocator The allocator to split with
+     * @return Each employee's share in pennies
+     */
+    public static long[] shares(long[] totalMinutes, long tipsPennies, TipAllocator allocator) {
+        long[] shares = new long[totalMinutes.length];
+        allocator.allocate(totalMinutes, totalMinutes.length, tipsPennies, shares);
+        return shares;
+    }
+
+    /**
+     * Calculate every employee's tip share for a month range and keep it in the store.
+     * @param store The employees
+     * @param startingMonthIndex The month to start from, 1 to 12
+     * @param endingMonthIndex The month to end at, 1 to 12
+     * @param tipsPennies The tips available, in pennies
+     * @param allocator The allocator to split with
+     */
+    public static void calculate(EmployeeStore store, int startingMonthIndex, int endingMonthIndex,
+                                 long tipsPennies, TipAllocator allocator) {
+        long[] shares = shares(totalMinutes(store, startingMonthIndex, endingMonthIndex), tipsPennies, allocator);
+        for (int row = 0; row < shares.length; row++) {
+            store.setTipShare(row, shares[row]);
+        }
+    }
+
+    /**
+     * Read a month as its number.
+     * @param month A month number, a month name, or its first three letters, in any case
+     * @return The month number, 1 to 12, or 0 if it isn't a month
+     */
+    public static int monthNumber(String month) {
+        String trimmed = month.trim();
+        try {
+            int number = Integer.parseInt(trimmed);
+            return number >= 1 && number <= EmployeeStore.MONTHS ? number : 0;
+        } catch (NumberFormatException e) {
+            for (int number = 1; number <= EmployeeStore.MONTHS; number++) {
+                String name = EmployeeTableModel.COLUMN_NAMES[number];
+                if (name.equalsIgnoreCase(trimmed) || (trimmed.length() == 3 && name.regionMatches(true, 0, trimmed, 0, 3))) {
+                    return number;
+                }
+            }
+            return 0;
+        }
+    }
+}
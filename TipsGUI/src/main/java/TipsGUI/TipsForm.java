@@ -1,32 +1,37 @@
 package TipsGUI;
 
-import com.opencsv.CSVWriter;
-import com.opencsv.bean.CsvBindByName;
-import com.opencsv.bean.CsvToBeanBuilder;
-
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.RowSorterEvent;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.math.BigDecimal;
-import java.math.MathContext;
-import java.math.RoundingMode;
-import java.time.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoField;
 import java.time.temporal.TemporalAccessor;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 
 public class TipsForm implements ActionListener {
     // Screen dimensions
     private final Dimension screenResolution = Toolkit.getDefaultToolkit().getScreenSize();
     private final double APPLICATION_SIZE_FRACTION = 0.8;
+    // A newer calculation replaces one still waiting to run
+    private static final String CALCULATION_JOB = "calculate";
 
     // Main application + layout
     private final JFrame frame;
@@ -37,68 +42,37 @@ public class TipsForm implements ActionListener {
     // Part of topPanel
     private JLabel tipsLabel;
     private JButton tipsSetButton;
-    private Float tips = 0.00f;
+    // The tips available, in pennies
+    private long tips = 0;
     private JButton importReplacingButton;
     private JButton importAddingButton;
+    private JButton browseButton;
+    private JCheckBox liveTipSharesBox;
+    private JSpinner yearSpinner;
+    private JTextField searchField;
+    private JComboBox<String> sortByBox;
 
     // Centre panel
     private final JScrollPane scrollPane;
-    private DefaultTableModel employeeTableModel;
+    private EmployeeTableModel employeeTableModel;
     private JTable employeeTable;
+    private EmployeeRowSorter rowSorter;
+    // Runs calculations, imports and exports in the background, one at a time
+    private final JobScheduler jobs = new JobScheduler();
 
     // Bottom panel
     private JButton addEmployeeButton;
     private JButton calculateDividedTips;
+    private JButton calculateForDatesButton;
+    private JButton dailyHoursButton;
     private JButton testButton;
     private JButton exportButton;
-
-    public static class CsvEmployee {
-        @CsvBindByName(column = "Name")
-        private String name;
-
-        @CsvBindByName(column = "January")
-        private String januaryDuration;
-
-        @CsvBindByName(column = "February")
-        private String februaryDuration;
-
-        @CsvBindByName(column = "March")
-        private String marchDuration;
-
-        @CsvBindByName(column = "April")
-        private String aprilDuration;
-
-        @CsvBindByName(column = "May")
-        private String mayDuration;
-
-        @CsvBindByName(column = "June")
-        private String juneDuration;
-
-        @CsvBindByName(column = "July")
-        private String julyDuration;
-
-        @CsvBindByName(column = "August")
-        private String augustDuration;
-
-        @CsvBindByName(column = "September")
-        private String septemberDuration;
-
-        @CsvBindByName(column = "October")
-        private String octoberDuration;
-
-        @CsvBindByName(column = "November")
-        private String novemberDuration;
-
-        @CsvBindByName(column = "December")
-        private String decemberDuration;
-
-        @CsvBindByName(column = "Tip Share")
-        private String tipShare;
-
-
-    }
+    private JButton undoButton;
+    private JButton redoButton;
 
     public static void main(String[] args) {
+        // Watch for the window being held up, and publish what the app is doing over JMX
+        Metrics.install();
         SwingUtilities.invokeLater(TipsForm::new);
     }
 
@@ -110,49 +84,73 @@ public class TipsForm implements ActionListener {
         screenResolution.width = (int) (screenResolution.width * APPLICATION_SIZE_FRACTION);
         screenResolution.height = (int) (screenResolution.height * APPLICATION_SIZE_FRACTION);
 
-        employeeTableModel = new DefaultTableModel();
-
         /*
-        * Add column for employee name and each month
-        * Each column represents the number of hours worked in that month
+        * One column for employee name and each month
+        * Each month column represents the number of hours worked in that month of the year shown
+        * The table starts as it was left last time, and every change to it is saved as it's made
         */
-        String[] columnNames = {"Name", "January", "February", "March", "April", "May", "June", "July", "August", "September", "October", "November", "December", "Tip Share"};
-        for (String column : columnNames) {
-            employeeTableModel.addColumn(column);
+        AutoSave autoSave = new AutoSave(AutoSave.defaultDirectory(), frame);
+        EmployeeStore store;
+        try {
+            store = autoSave.restore();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(
+                    frame,
+                    "The table from last time could not be restored, and changes won't be saved automatically: " + e.getMessage(),
+                    "File error",
+                    JOptionPane.ERROR_MESSAGE);
+            store = new EmployeeStore();
+            autoSave = null;
+        }
+        employeeTableModel = new EmployeeTableModel(new Ledger(store));
+        if (autoSave != null) {
+            autoSave.start(employeeTableModel);
         }
 
-        employeeTable = new JTable(employeeTableModel);
+        employeeTable = new EmployeeTable(employeeTableModel);
         employeeTable.setPreferredScrollableViewportSize(screenResolution);
         employeeTable.setFillsViewportHeight(true);
 
+        // Sort by clicking a column header, and search by name, without reading every cell again
+        rowSorter = new EmployeeRowSorter(employeeTableModel);
+        employeeTable.setRowSorter(rowSorter);
+
         // Create a listener for the table to prevent incorrect formats
         Action checkCellFormat = new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 TableCellListener tcl = (TableCellListener) e.getSource();
 
-                JTable table = tcl.getTable();
                 int row = tcl.getRow();
                 int col = tcl.getColumn();
                 Object oldValue = tcl.getOldValue();
-                Object newValue = tcl.getNewValue();
-
-                // Ignore "Name" and "Tip share" columns
-                if (col != 0 && col != 13) {
-                    if (!(String.valueOf(newValue).matches("\\d+[hH]\\s\\d{0,2}[mM]"))) {
-                        // Alert if value doesn't match accepted format
-                        JOptionPane.showMessageDialog(
-                                null,
-                                "New value must match the accepted format! e.g. 128 hours and 31 minutes = 128h 31m",
-                                "Format error",
-                                JOptionPane.ERROR_MESSAGE);
-                        // Set cell value back to what it was before edit
-                        table.setValueAt(oldValue, row, col);
+
+                // "Name" and "Tip share" columns are always valid
+                if (!employeeTableModel.isValidCell(row, col)) {
+                    Metrics.count("table.rejections");
+                    // Alert if value doesn't match accepted format
+                    JOptionPane.showMessageDialog(
+                            null,
+                            "New value must match the accepted format! e.g. 128 hours and 31 minutes = 128h 31m",
+                            "Format error",
+                            JOptionPane.ERROR_MESSAGE);
+                    // Set cell value back to what it was before edit, leaving nothing to redo
+                    employeeTableModel.getHistory().revert();
+                } else if (EmployeeTableModel.isMonthColumn(col)) {
+                    // Keep live shares up to date without going over the whole table
+                    LiveTipShares liveTipShares = employeeTableModel.getLiveTipShares();
+                    if (liveTipShares != null && liveTipShares.cellEdited(
+                            row, col, DurationFormat.toMinutes(oldValue), employeeTableModel.getStore().getMinutes(row, col))) {
+                        employeeTableModel.fireTipSharesChanged();
                     }
                 }
             }
         };
 
+        // Paste a block of cells from a spreadsheet, checked and applied all at once
+        employeeTable.getActionMap().put(TransferHandler.getPasteAction().getValue(Action.NAME),
+                new PasteAction(employeeTable, employeeTableModel));
+
         TableCellListener listener = new TableCellListener(employeeTable, checkCellFormat);
         employeeTableModel.addTableModelListener(listener.getTable());
     }
@@ -166,13 +164,9 @@ public class TipsForm implements ActionListener {
         // Ask for name of new addition
         String employeeName = JOptionPane.showInputDialog("Enter employee name:");
         if (employeeName != null && !(employeeName.isEmpty())) {
-            Employee employee = new Employee(employeeName);
-
             // Add a row with the provided name as the input for the first column; remaining cells in that row set to 0h 00m
-            Object[] newRow = new Object[]{
-                    employee.getName(), "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "£0.00"
-            };
-            employeeTableModel.addRow(newRow);
+            employeeTableModel.getHistory().mark("Add employee");
+            employeeTableModel.addEmployee(employeeName);
         } else if (employeeName != null) {
             // Alert if the name field is empty
             JOptionPane.showMessageDialog(
@@ -184,32 +178,27 @@ public class TipsForm implements ActionListener {
     }
 
     /**
-     * Get the value of a cell in employeeTable as a Duration.
-     * @param value The cell's value
-     * @return The value as a Duration
+     * Open an input dialog asking the user to input the range of months to calculate from,
+     * then calculate tips for that range, or follow it with live tip shares if they are switched on.
      */
-    private static Duration getDuration(Object value) {
-        String valueString = String.valueOf(value).toLowerCase();
-
-        // Extract the hours and minutes from the value
-        long hours = Integer.parseInt(
-                valueString.substring(0, valueString.indexOf('h'))
-        );
-
-        long minutes = Integer.parseInt(
-                valueString.substring(
-                        valueString.indexOf('h') + 2, valueString.indexOf('m')
-                )
-        );
-
-        return Duration.ofHours(hours).plusMinutes(minutes);
+    public void openMonthSelectDialog() {
+        int[] monthRange = selectMonthRange();
+        if (monthRange == null) {
+            return;
+        }
+        if (liveTipSharesBox.isSelected()) {
+            startLiveTipShares(monthRange[0], monthRange[1]);
+        } else {
+            calculateHours(monthRange[0], monthRange[1]);
+        }
     }
 
     /**
      * Open an input dialog asking the user to input the range of months to calculate from.
      * Converts said months into integers for use in calculateTips().
+     * @return The starting and ending month numbers, or null if the dialog was cancelled
      */
-    public void openMonthSelectDialog() {
+    private int[] selectMonthRange() {
         String[] months = {"January", "February", "March", "April", "May", "June", "July", "August", "September", "October", "November", "December"};
 
         // Dropdown menus for months; set default to January to avoid NullPointerException
@@ -247,94 +236,178 @@ public class TipsForm implements ActionListener {
             TemporalAccessor endAccessor = parser.parse(endingMonth);
             int endingMonthIndex = endAccessor.get(ChronoField.MONTH_OF_YEAR);
 
-            calculateHours(startingMonthIndex, endingMonthIndex);
+            return new int[]{startingMonthIndex, endingMonthIndex};
         }
+        return null;
     }
 
     /**
-     * Calculate the total and individual hours of each employee, for use in calculating their share of tips.
-     * @param startingMonthIndex The index of the month to start calculating from
-     * @param endingMonthIndex The index of the month to end calculating at
+     * Open an input dialog asking the user for the first and last days to calculate tips for, in any years.
+     * @return The first and last days, or null if the dialog was cancelled or a day couldn't be read
      */
-    public void calculateHours(int startingMonthIndex, int endingMonthIndex) {
-        // A list of all employees and their total time worked
-        Map<String, Duration> individualTotalWorked = Collections.synchronizedMap(new LinkedHashMap<>());
-
-        // Go through each employee, then record their name and a running total of their hours
-        for (int row = 0; row < employeeTable.getRowCount(); row++) {
-            String employeeName = String.valueOf(employeeTable.getValueAt(row, 0));
-            Duration currentTotal = Duration.ofHours(0L);
-
-            // Gather the total of hours in the given month range
-            if (startingMonthIndex == endingMonthIndex) { /* e.g. January to January, that is, only get one month's hours */
-                String currentCell = String.valueOf(employeeTable.getValueAt(row, startingMonthIndex));
-                Duration currentHours;
-                if (currentCell.matches("\\d+[hH]\\s\\d{0,2}[mM]")) {
-                    currentHours = getDuration(employeeTable.getValueAt(row, startingMonthIndex));
-                } else {
-                    currentHours = getDuration(0);
-                }
-                currentTotal = currentTotal.plus(currentHours);
-            } else if (startingMonthIndex < endingMonthIndex) { /* e.g. March (3) to September (9) */
-                for (int col = startingMonthIndex; col <= endingMonthIndex; col++) {
-                    String currentCell = String.valueOf(employeeTable.getValueAt(row, col));
-                    Duration currentHours;
-                    if (currentCell.matches("\\d+[hH]\\s\\d{0,2}[mM]")) {
-                        currentHours = getDuration(employeeTable.getValueAt(row, col));
-                    } else {
-                        currentHours = getDuration(0);
-                    }
-                    currentTotal = currentTotal.plus(currentHours);
-                }
-            } else { /* e.g. October (10) to February (2) */
-                // Modulo operator 'wraps around' the array
-                for (int col = startingMonthIndex; col != endingMonthIndex + 1; col = (col + 1) % 12) {
-                    Duration currentCell = getDuration(employeeTable.getValueAt(row, col));
-                    currentTotal = currentTotal.plus(currentCell);
-                }
+    private LocalDate[] selectDateRange() {
+        int year = employeeTableModel.getStore().getYear();
+        JTextField fromDateField = new JTextField(LocalDate.of(year, 1, 1).toString(), 10);
+        JTextField toDateField = new JTextField(LocalDate.of(year, 12, 31).toString(), 10);
+
+        JPanel calcPanel = new JPanel();
+        calcPanel.add(new JLabel("From:"));
+        calcPanel.add(fromDateField);
+        calcPanel.add(Box.createHorizontalStrut(15)); // layout
+        calcPanel.add(new JLabel("To:"));
+        calcPanel.add(toDateField);
+
+        int result = JOptionPane.showConfirmDialog(null, calcPanel, "Select the days to calculate tips for:", JOptionPane.OK_CANCEL_OPTION);
+        if (result != JOptionPane.OK_OPTION) {
+            return null;
+        }
+        try {
+            LocalDate from = LocalDate.parse(fromDateField.getText().trim());
+            LocalDate to = LocalDate.parse(toDateField.getText().trim());
+            if (to.isBefore(from)) {
+                JOptionPane.showMessageDialog(null, "The last day must not be before the first!", "Field error", JOptionPane.ERROR_MESSAGE);
+                return null;
             }
+            return new LocalDate[]{from, to};
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(null, "Days must be written as year-month-day, e.g. 2024-03-31", "Format error", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+    }
 
-            // Add this person's total hours to hashmap
-            individualTotalWorked.put(employeeName, currentTotal);
+    /**
+     * Ask for a day and the hours the selected employee worked on it, in any year.
+     * A day in the year shown is added into its month's column.
+     */
+    private void enterDailyHours() {
+        int viewRow = employeeTable.getSelectedRow();
+        if (viewRow < 0) {
+            JOptionPane.showMessageDialog(frame, "Select an employee first!", "Field error", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        int row = employeeTable.convertRowIndexToModel(viewRow);
+
+        JTextField dateField = new JTextField(LocalDate.now().toString(), 10);
+        JTextField hoursField = new JTextField(DurationFormat.toText(0), 8);
+        JPanel dayPanel = new JPanel();
+        dayPanel.add(new JLabel("Day:"));
+        dayPanel.add(dateField);
+        dayPanel.add(Box.createHorizontalStrut(15)); // layout
+        dayPanel.add(new JLabel("Hours:"));
+        dayPanel.add(hoursField);
+
+        String name = employeeTableModel.getStore().getName(row);
+        int result = JOptionPane.showConfirmDialog(frame, dayPanel, "Hours worked by " + name + " on a day:", JOptionPane.OK_CANCEL_OPTION);
+        if (result != JOptionPane.OK_OPTION) {
+            return;
+        }
+        LocalDate date;
+        try {
+            date = LocalDate.parse(dateField.getText().trim());
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(frame, "The day must be written as year-month-day, e.g. 2024-03-31", "Format error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        int minutes = DurationFormat.toMinutes(hoursField.getText().trim());
+        // No more than a whole day can be worked in a day
+        if (minutes == EmployeeStore.INVALID_MINUTES || minutes > 24 * 60) {
+            JOptionPane.showMessageDialog(
+                    frame,
+                    "Hours must match the accepted format and fit in a day! e.g. 7 hours and 30 minutes = 7h 30m",
+                    "Format error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        employeeTableModel.getHistory().mark("Enter daily hours");
+        employeeTableModel.setDayMinutes(row, date, minutes);
+    }
 
-        calculateTips(individualTotalWorked);
+    /**
+     * Show live tip shares for a month range, which follow every edit to the table.
+     * @param startingMonthIndex The index of the month to start calculating from
+     * @param endingMonthIndex The index of the month to end calculating at
+     */
+    private void startLiveTipShares(int startingMonthIndex, int endingMonthIndex) {
+        long start = System.nanoTime();
+        employeeTableModel.setLiveTipShares(new LiveTipShares(
+                employeeTableModel.getStore(), startingMonthIndex, endingMonthIndex, tips));
+        Metrics.time("calculate.live", start);
     }
 
     /**
-     * Populate the 'Tips share' column of each row with the amount that person is owed of the available tips.
-     * @param individualTotalWorked The total duration worked for each employee.
+     * Set the tips available to an amount typed in, or tell the user it couldn't be read.
+     * @param inputValue The amount typed
+     * @return False if the amount couldn't be read, leaving the tips as they were
      */
-    private void calculateTips(Map<String, Duration> individualTotalWorked) {
-        // Sum the time worked of all employees, then divide by the tips available to get a ratio
-        Duration totalWorkedHours = Duration.ofHours(0);
-        for (Map.Entry<String, Duration> employee : individualTotalWorked.entrySet()) {
-            totalWorkedHours = totalWorkedHours.plus(employee.getValue());
+    private boolean setTypedTips(Object inputValue) {
+        try {
+            setTips(MoneyFormat.parseAmount(inputValue.toString()));
+            return true;
+        } catch (NumberFormatException e) {
+            // Alert user of syntax error
+            JOptionPane.showMessageDialog(
+                    null,
+                    "Tips was not filled out properly! \nUse standard currency format, but you don't need to include the currency type (such as £).",
+                    "Syntax error",
+                    JOptionPane.ERROR_MESSAGE);
+            return false;
         }
-        float totalWorkedHoursFloat = (float) totalWorkedHours.toMinutes() / 60;
-        float tipsRatio = tips / totalWorkedHoursFloat;
-
-        // Update "Tips share" column for each employee with their hours multiplied by the ratio
-        BigDecimal share;
-        // Optionally recalculate total tip shares to ensure it matches tipsAvailable
-        //BigDecimal recalculatedTips = BigDecimal.valueOf(0);
-        // Using a LinkedHashMap, use mapIndex as the row as it will follow the map's insertion order.
-        int mapIndex = 0;
-        for (String key : individualTotalWorked.keySet()) {
-            Duration d = individualTotalWorked.get(key);
-            float time = (float) d.toMinutes() / 60;
-            share = BigDecimal.valueOf(time * tipsRatio)
-                    .round(new MathContext(4, RoundingMode.HALF_EVEN));
-
-            //recalculatedTips = recalculatedTips.add(share);
-
-            Object shareToShow = String.format("£%.2f", share);
-            employeeTable.setValueAt(shareToShow, mapIndex, 13);
-
-            mapIndex += 1;
+    }
+
+    /**
+     * Set the tips available, and show the new amount.
+     * @param newTips The tips available, in pennies
+     */
+    private void setTips(long newTips) {
+        tips = newTips;
+        tipsLabel.setText(String.format("Tips available: %s", MoneyFormat.toText(tips)));
+
+        LiveTipShares liveTipShares = employeeTableModel.getLiveTipShares();
+        if (liveTipShares != null) {
+            liveTipShares.setTips(tips);
+            employeeTableModel.fireTipSharesChanged();
         }
+    }
 
-        //System.out.println(recalculatedTips);
+    /**
+     * Calculate the total and individual hours of each employee, for use in calculating their share of tips.
+     * The months are those of the year shown, whose totals are the month columns.
+     * The calculation runs in the background, replacing any calculation still waiting to.
+     * @param startingMonthIndex The index of the month to start calculating from
+     * @param endingMonthIndex The index of the month to end calculating at
+     */
+    public void calculateHours(int startingMonthIndex, int endingMonthIndex) {
+        // The total minutes worked by each employee, indexed by model row
+        calculateTips("Calculating tips", "calculate.months",
+                store -> TipsCalculator.totalMinutes(store, startingMonthIndex, endingMonthIndex));
+    }
+
+    /**
+     * Calculate the total hours of each employee between two days, which may be in different years.
+     * Whole months and years come from each employee's running totals rather than their days.
+     * @param from The first day, inclusive
+     * @param to The last day, inclusive
+     */
+    public void calculateHours(LocalDate from, LocalDate to) {
+        calculateTips("Calculating tips from " + from + " to " + to, "calculate.dates",
+                store -> TipsCalculator.totalMinutes(store, from, to));
+    }
+
+    /**
+     * Populate the 'Tips share' column of each row with the amount that person is owed of the available tips,
+     * worked out in the background and set for every employee at once.
+     * If the table is changed while they're worked out, they're worked out again.
+     * @param jobName What to show while the calculation runs
+     * @param timerName The Metrics timer to record how long it took in
+     * @param totalMinutes Adds up the total minutes worked by each employee, indexed by model row
+     */
+    private void calculateTips(String jobName, String timerName, Function<EmployeeStore, long[]> totalMinutes) {
+        long pool = tips;
+        jobs.submit(jobName, CALCULATION_JOB, () -> new CalculateWorker(employeeTableModel, totalMinutes, pool, timerName, () -> {
+            if (!jobs.isQueued(CALCULATION_JOB)) {
+                calculateTips(jobName, timerName, totalMinutes);
+            }
+        }, frame));
     }
 
     /**
@@ -352,71 +425,65 @@ public class TipsForm implements ActionListener {
                     "Tips field was not filled. Cancelling test data creation.",
                     "Field error",
                     JOptionPane.ERROR_MESSAGE);
-        } else {
-            tips = Float.valueOf(inputValue.toString());
-            tipsLabel.setText(String.format("Tips available: %s", tips));
-
-            for (int i = 0; i < 10; i++) {
-                String testName = "Test " + (i+1);
-
-                Random randNum = new Random();
-                // Result should range between 1 and 12 (nextInt lower bound starts at 0 inclusive, upper bound is exclusive).
-                int randomMonth = randNum.nextInt(12) + 1;
-                // Following variable is redundant but being kept for clarity
-                int numColumnsToChange = randomMonth;
-                // Use a set to prevent duplicate months from appearing
-                Set<Integer> affectedMonths = new HashSet<>();
-                while (affectedMonths.size() < numColumnsToChange) {
-                    affectedMonths.add(randNum.nextInt(12) + 1);
+        } else if (setTypedTips(inputValue)) {
+            // Build all the test employees in the background, then add them to the table in one step
+            jobs.submit("Creating example employees", null, () -> new SwingWorker<RowBatch, Void>() {
+                @Override
+                protected RowBatch doInBackground() {
+                    return createTestRows();
                 }
 
-                Object[] testRow = new Object[]{
-                        testName, "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "0h 00m", "£0.00"
-                };
-
-                for (Integer monthIndex : affectedMonths) {
-                    int randomHour = randNum.nextInt(11);
-                    int randomMin1 = randNum.nextInt(6);
-                    int randomMin2 = randNum.nextInt(10);
-                    Object timeValue = String.format("%dh %d%dm", randomHour, randomMin1, randomMin2);
-
-                    testRow[monthIndex] = timeValue;
+                @Override
+                protected void done() {
+                    try {
+                        RowBatch testRows = get();
+                        employeeTableModel.getHistory().mark("Add example employees");
+                        employeeTableModel.addRows(testRows);
+                    } catch (CancellationException | InterruptedException | ExecutionException e) {
+                        // No employees are added
+                    }
                 }
-                employeeTableModel.addRow(testRow);
-            }
+            });
 
+            // The calculation waits for the employees to be added
             openMonthSelectDialog();
         }
     }
 
-    /***
-     * Add all recognised employees from an imported CSV file to the table.
-     * @param listOfNewEmployees The beans list.
+    /**
+     * @return 10 test employees with random hours
      */
-    private void addCsvEmployeesToTable(List<CsvEmployee> listOfNewEmployees) {
-        for (CsvEmployee csvEmp : listOfNewEmployees) {
-            Object[] newRow = new Object[]{
-                csvEmp.name,
-                csvEmp.januaryDuration,
-                csvEmp.februaryDuration,
-                csvEmp.marchDuration,
-                csvEmp.aprilDuration,
-                csvEmp.mayDuration,
-                csvEmp.juneDuration,
-                csvEmp.julyDuration,
-                csvEmp.augustDuration,
-                csvEmp.septemberDuration,
-                csvEmp.octoberDuration,
-                csvEmp.novemberDuration,
-                csvEmp.decemberDuration,
-                csvEmp.tipShare
-            };
-            employeeTableModel.addRow(newRow);
+    private static RowBatch createTestRows() {
+        RowBatch testRows = new RowBatch(10);
+        for (int i = 0; i < 10; i++) {
+            String testName = "Test " + (i+1);
+
+            Random randNum = new Random();
+            // Result should range between 1 and 12 (nextInt lower bound starts at 0 inclusive, upper bound is exclusive).
+            int randomMonth = randNum.nextInt(12) + 1;
+            // Following variable is redundant but being kept for clarity
+            int numColumnsToChange = randomMonth;
+            // Use a set to prevent duplicate months from appearing
+            Set<Integer> affectedMonths = new HashSet<>();
+            while (affectedMonths.size() < numColumnsToChange) {
+                affectedMonths.add(randNum.nextInt(12) + 1);
+            }
+
+            int testRow = testRows.add(testName, 0);
+
+            for (Integer monthIndex : affectedMonths) {
+                int randomHour = randNum.nextInt(11);
+                int randomMin1 = randNum.nextInt(6);
+                int randomMin2 = randNum.nextInt(10);
+
+                testRows.setMinutes(testRow, monthIndex, randomHour * 60 + randomMin1 * 10 + randomMin2);
+            }
         }
+        return testRows;
     }
 
     /***
-     * Import a CSV file into the table.
+     * Import a CSV file, a binary snapshot or a compressed archive into the table.
      * @param replacesTable True if the import resets the table and sets it to the file contents. False if it adds onto the existing table.
      */
     private void importFile(boolean replacesTable) {
@@ -427,62 +494,112 @@ public class TipsForm implements ActionListener {
             String fileName = file.getName();
             String fileType = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase();
 
-            if (fileType.equals("csv")) {
-                try {
-                    List<CsvEmployee> beans = new CsvToBeanBuilder(new FileReader(fileName))
-                            .withType(CsvEmployee.class).build().parse();
-                    if (replacesTable) {
-                        int rowCount = employeeTableModel.getRowCount();
-                        for (int i = 0; i < rowCount; i++) {
-                            employeeTableModel.removeRow(0);
-                        }
-                    }
-                    addCsvEmployeesToTable(beans);
-
-                } catch (Exception e) {
+            if (fileType.equals("csv") || fileType.equals(SnapshotFile.EXTENSION)
+                    || fileType.equals(ArchiveFile.EXTENSION)) {
+                if (!file.isFile()) {
                     // File alert
                     JOptionPane.showMessageDialog(
                             null,
                             "No such file exists",
                             "File error",
                             JOptionPane.ERROR_MESSAGE);
+                    return;
                 }
+                // Rows are read in the background; a replacing import only takes the table's place once the whole
+                // file has been read, while a merging one updates employees already in it instead of adding them again.
+                // The whole import is one step to undo
+                jobs.submit("Importing " + fileName, null, () -> {
+                    employeeTableModel.getHistory().mark("Import " + fileName);
+                    return new CsvImportWorker(file, employeeTableModel, frame, !replacesTable);
+                });
             }
         }
     }
 
     /**
-     * Exports the table as a CSV file.
+     * Exports the table as a CSV file, as a binary snapshot if the name chosen ends in ".tips",
+     * or as a compressed archive if it ends in ".tipz".
+     * The file is written in the background, to the full path chosen, from the table as it is once any jobs
+     * before it are done.
      */
     private void exportFile() {
         JFileChooser chooser = new JFileChooser();
         int returnValue = chooser.showSaveDialog(frame);
 
-        String fileName;
         if (returnValue == JFileChooser.APPROVE_OPTION) {
-            fileName = chooser.getSelectedFile().getName();
+            Path path = chooser.getSelectedFile().toPath();
+            jobs.submit("Exporting to " + path.getFileName(), null, () -> new CsvExportWorker(path, employeeTableModel, frame));
+        }
+    }
 
-            try (CSVWriter writer = new CSVWriter(new FileWriter(fileName))) {
-                // As in makeTable()
-                String[] headers = {"Name", "January", "February", "March", "April", "May", "June", "July", "August", "September", "October", "November", "December", "Tip Share"};
-                writer.writeNext(headers);
+    /**
+     * Open a snapshot in a window of its own, reading its rows from the file a page at a time as they're scrolled to.
+     * Its tips are split for a month range by reading through the file, so even snapshots larger than memory can be used.
+     */
+    private void browseSnapshot() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        PagedSnapshot snapshot;
+        try {
+            snapshot = PagedSnapshot.open(chooser.getSelectedFile().toPath());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(frame, "The file could not be read: " + e.getMessage(), "File error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
-                String[] line = new String[14];
-                for (int row = 0; row < employeeTableModel.getRowCount(); row++) {
-                    for (int col = 0; col < employeeTableModel.getColumnCount(); col++) {
-                        line[col] = String.valueOf(employeeTable.getValueAt(row, col));
+        PagedTableModel model = new PagedTableModel(snapshot);
+        JTable table = new EmployeeTable(model);
+        JScrollPane pane = new JScrollPane(table);
+        // Keep just enough pages cached for the rows in view
+        pane.getViewport().addChangeListener(e ->
+                model.setVisibleRowCount(pane.getViewport().getExtentSize().height / table.getRowHeight() + 1));
+
+        JFrame browser = new JFrame(chooser.getSelectedFile().getName() + " (" + snapshot.getRowCount() + " employees)");
+        JButton calculateButton = new JButton("Calculate tips according to hours worked");
+        calculateButton.addActionListener(e -> {
+            int[] monthRange = selectMonthRange();
+            if (monthRange == null) {
+                return;
+            }
+            calculateButton.setEnabled(false);
+            long pool = tips;
+            new SwingWorker<StreamingTipAllocation, Void>() {
+                @Override
+                protected StreamingTipAllocation doInBackground() throws IOException {
+                    return StreamingTipAllocation.calculate(snapshot, monthRange[0], monthRange[1], pool);
+                }
+
+                @Override
+                protected void done() {
+                    calculateButton.setEnabled(true);
+                    try {
+                        model.setAllocation(get());
+                    } catch (InterruptedException | ExecutionException ex) {
+                        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                        JOptionPane.showMessageDialog(browser, "The file could not be read: " + cause.getMessage(), "File error", JOptionPane.ERROR_MESSAGE);
                     }
+                }
+            }.execute();
+        });
 
-                    writer.writeNext(line);
+        browser.add(pane, BorderLayout.CENTER);
+        browser.add(calculateButton, BorderLayout.SOUTH);
+        browser.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        browser.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                try {
+                    snapshot.close();
+                } catch (IOException ex) {
+                    // Nothing was written
                 }
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(
-                        null,
-                        "No such file exists",
-                        "File error",
-                        JOptionPane.ERROR_MESSAGE);
             }
-        }
+        });
+        browser.setSize(screenResolution);
+        browser.setLocationRelativeTo(frame);
+        browser.setVisible(true);
     }
 
     /**
@@ -559,7 +676,7 @@ public class TipsForm implements ActionListener {
         gbc.fill = GridBagConstraints.BOTH;
 
         // Create label indicating the tips available, should change when set via 'Set' button
-        String label = String.format("Tips available: %s", tips.toString());
+        String label = String.format("Tips available: %s", MoneyFormat.toText(tips));
         tipsLabel = new JLabel(label);
 
         // Listen for user action and perform respective command
@@ -576,10 +693,88 @@ public class TipsForm implements ActionListener {
         importAddingButton.setActionCommand("IMPORT_FILE_ADD");
         importAddingButton.addActionListener(this);
 
+        // Look through a snapshot too large to import, without loading it
+        browseButton = new JButton("Browse large snapshot (read only)");
+        browseButton.setActionCommand("BROWSE_SNAPSHOT");
+        browseButton.addActionListener(this);
+
+        // Keep the Tip Share column up to date while the table is edited
+        liveTipSharesBox = new JCheckBox("Live tip shares");
+        liveTipSharesBox.setActionCommand("TOGGLE_LIVE_TIPS");
+        liveTipSharesBox.addActionListener(this);
+
         // Establish table
         makeTable();
         scrollPane = new JScrollPane(employeeTable);
 
+        // The month columns show one year at a time; the table keeps the hours of every year
+        yearSpinner = new JSpinner(new SpinnerNumberModel(employeeTableModel.getStore().getYear(), 1, 9999, 1));
+        yearSpinner.setEditor(new JSpinner.NumberEditor(yearSpinner, "#"));
+        yearSpinner.addChangeListener(e -> {
+            int year = (Integer) yearSpinner.getValue();
+            // The spinner is also set to follow an undo or import, which isn't a step of its own
+            if (year != employeeTableModel.getStore().getYear()) {
+                employeeTableModel.getHistory().mark("Change year shown");
+                employeeTableModel.setYear(year);
+            }
+        });
+        // An undo or an imported snapshot may change the year shown too
+        employeeTableModel.addTableModelListener(e -> {
+            if ((Integer) yearSpinner.getValue() != employeeTableModel.getStore().getYear()) {
+                yearSpinner.setValue(employeeTableModel.getStore().getYear());
+            }
+        });
+        JPanel yearPane = new JPanel();
+        yearPane.add(new JLabel("Year shown:"));
+        yearPane.add(yearSpinner);
+
+        // Narrow the table to the employees whose names start with what's typed, as it's typed
+        searchField = new JTextField(15);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                rowSorter.setNamePrefix(searchField.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                rowSorter.setNamePrefix(searchField.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                rowSorter.setNamePrefix(searchField.getText());
+            }
+        });
+
+        // Sorts without a column of their own; a column can also be sorted by clicking its header
+        String[] sortNames = {"Table order", "Name", "Total hours (most first)", "Tip share (most first)"};
+        List<List<RowSorter.SortKey>> sortKeys = Arrays.asList(
+                Collections.<RowSorter.SortKey>emptyList(),
+                Collections.singletonList(new RowSorter.SortKey(EmployeeTableModel.NAME_COLUMN, SortOrder.ASCENDING)),
+                Collections.singletonList(new RowSorter.SortKey(EmployeeRowSorter.TOTAL_MINUTES_COLUMN, SortOrder.DESCENDING)),
+                Collections.singletonList(new RowSorter.SortKey(EmployeeTableModel.TIP_SHARE_COLUMN, SortOrder.DESCENDING)));
+        sortByBox = new JComboBox<>(sortNames);
+        sortByBox.addActionListener(e -> {
+            if (sortByBox.getSelectedIndex() >= 0) {
+                rowSorter.setSortKeys(sortKeys.get(sortByBox.getSelectedIndex()));
+            }
+        });
+        // Show which of them the table is sorted by, if any, after a header is clicked
+        rowSorter.addRowSorterListener(e -> {
+            if (e.getType() == RowSorterEvent.Type.SORT_ORDER_CHANGED) {
+                int index = sortKeys.indexOf(rowSorter.getSortKeys());
+                if (index != sortByBox.getSelectedIndex()) {
+                    sortByBox.setSelectedIndex(index);
+                }
+            }
+        });
+        JPanel searchPane = new JPanel();
+        searchPane.add(new JLabel("Find name:"));
+        searchPane.add(searchField);
+        searchPane.add(new JLabel("Sort by:"));
+        searchPane.add(sortByBox);
+
         // Listen for user action and perform respective command
         addEmployeeButton = new JButton("Add employee");
         addEmployeeButton.setActionCommand("ADD_NEW_EMPLOYEE");
@@ -590,6 +785,16 @@ public class TipsForm implements ActionListener {
         calculateDividedTips.setActionCommand("CALCULATE_TIPS");
         calculateDividedTips.addActionListener(this);
 
+        // Split the tips for any days, e.g. a quarter or a span across the new year
+        calculateForDatesButton = new JButton("Calculate tips for a date range");
+        calculateForDatesButton.setActionCommand("CALCULATE_TIPS_FOR_DATES");
+        calculateForDatesButton.addActionListener(this);
+
+        // Enter hours a day at a time, in any year
+        dailyHoursButton = new JButton("Enter daily hours");
+        dailyHoursButton.setActionCommand("ENTER_DAILY_HOURS");
+        dailyHoursButton.addActionListener(this);
+
         exportButton = new JButton("Export table");
         exportButton.setActionCommand("EXPORT_TABLE");
         exportButton.addActionListener(this);
@@ -604,6 +809,20 @@ public class TipsForm implements ActionListener {
         deleteRowButton.setActionCommand("DELETE_ROW");
         deleteRowButton.addActionListener(this);
 
+        // Undo and redo whole steps, e.g. an import or a deleted row, also with Ctrl+Z and Ctrl+Y
+        undoButton = new JButton("Undo");
+        undoButton.setActionCommand("UNDO");
+        undoButton.addActionListener(this);
+        redoButton = new JButton("Redo");
+        redoButton.setActionCommand("REDO");
+        redoButton.addActionListener(this);
+        bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), "UNDO");
+        bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK), "REDO");
+        employeeTableModel.getHistory().addChangeListener(e -> updateUndoButtons());
+        // Redo is no longer possible once the table changes
+        employeeTableModel.addTableModelListener(e -> updateUndoButtons());
+        updateUndoButtons();
+
         // Add components to appropriate panels
         GridBagLayout topLayout = new GridBagLayout();
         GridBagConstraints topGbc = new GridBagConstraints();
@@ -612,6 +831,10 @@ public class TipsForm implements ActionListener {
         this.addWithConstraints(tipsLabel, topPane, topLayout, topGbc, 1, 0, 2, 1, new Insets(2,5,0,0));
         this.addWithConstraints(importReplacingButton, topPane, topLayout, topGbc, 0, 1, 3, 1, new Insets(5,0,0,0));
         this.addWithConstraints(importAddingButton, topPane, topLayout, topGbc, 0, 2, 3, 1, new Insets(5,0,0,0));
+        this.addWithConstraints(browseButton, topPane, topLayout, topGbc, 0, 3, 3, 1, new Insets(5,0,0,0));
+        this.addWithConstraints(liveTipSharesBox, topPane, topLayout, topGbc, 0, 4, 3, 1, new Insets(5,0,0,0));
+        this.addWithConstraints(yearPane, topPane, topLayout, topGbc, 0, 5, 3, 1, new Insets(5,0,0,0));
+        this.addWithConstraints(searchPane, topPane, topLayout, topGbc, 0, 6, 3, 1, new Insets(5,0,0,0));
 
         JPanel tablePane = new JPanel();
         this.addWithConstraints(scrollPane, tablePane, layout, gbc, 0, 0, 0, 0);
@@ -619,33 +842,71 @@ public class TipsForm implements ActionListener {
         JPanel bottomPane = new JPanel();
         this.addWithConstraints(addEmployeeButton, bottomPane, layout, gbc, 0, 0, 2, 1);
         this.addWithConstraints(calculateDividedTips, bottomPane, layout, gbc, 1, 0, 2, 1);
+        this.addWithConstraints(dailyHoursButton, bottomPane, layout, gbc, 0, 1, 2, 1);
         this.addWithConstraints(exportButton, bottomPane, layout, gbc, 1, 1, 2, 1);
+        this.addWithConstraints(calculateForDatesButton, bottomPane, layout, gbc, 3, 0, 2, 1);
         this.addWithConstraints(testButton, bottomPane, layout, gbc, 2, 0, 2, 1);
         this.addWithConstraints(deleteRowButton, bottomPane, layout, gbc, 2, 1, 2, 1);
+        this.addWithConstraints(undoButton, bottomPane, layout, gbc, 4, 0, 1, 1);
+        this.addWithConstraints(redoButton, bottomPane, layout, gbc, 4, 1, 1, 1);
 
         frame.add(topPane, BorderLayout.NORTH);
         this.addWithConstraints(tablePane, contentPane, layout, gbc, 0, 0, 5, 1);
-        frame.add(bottomPane, BorderLayout.SOUTH);
+        // The buttons, with the status of any job running below them
+        JPanel southPane = new JPanel(new BorderLayout());
+        southPane.add(bottomPane, BorderLayout.CENTER);
+        southPane.add(jobs.getStatusBar(), BorderLayout.SOUTH);
+        frame.add(southPane, BorderLayout.SOUTH);
+    }
+
+    /**
+     * Run a command from a key pressed anywhere in the window, as if its button had been clicked.
+     */
+    private void bindKey(KeyStroke key, String command) {
+        frame.getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(key, command);
+        frame.getRootPane().getActionMap().put(command, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                TipsForm.this.actionPerformed(new ActionEvent(frame, ActionEvent.ACTION_PERFORMED, command));
+            }
+        });
+    }
+
+    /**
+     * Enable the undo and redo buttons while there is a step for them, naming the step in their tooltips.
+     */
+    private void updateUndoButtons() {
+        UndoHistory history = employeeTableModel.getHistory();
+        undoButton.setEnabled(history.canUndo());
+        undoButton.setToolTipText(history.canUndo() ? "Undo " + history.getUndoName() : null);
+        redoButton.setEnabled(history.canRedo());
+        redoButton.setToolTipText(history.canRedo() ? "Redo " + history.getRedoName() : null);
     }
 
     @Override
     public void actionPerformed(ActionEvent e) {
         String command = e.getActionCommand().toUpperCase().trim();
 
+        // Every command is timed, including any dialogs it opens
+        long start = System.nanoTime();
+        try {
+            runCommand(command);
+        } finally {
+            Metrics.time("command." + command, start);
+        }
+    }
+
+    /**
+     * Perform a button's command.
+     * @param command The action command, in upper case
+     */
+    private void runCommand(String command) {
         switch (command) {
             case "SET_TIPS_AMOUNT":
-                // Set 'tips' value to the input, as a Float
+                // Set 'tips' value to the input, in pennies
                 Object inputValue = JOptionPane.showInputDialog("Do not include currency symbols! \n\nTips available:");
-                if (inputValue != null && inputValue.toString().matches("\\d+.?(\\d{1,2})*")) {
-                    tips = Float.valueOf(inputValue.toString());
-                    tipsLabel.setText(String.format("Tips available: %s", tips));
-                } else if (inputValue != null && !inputValue.toString().matches("\\d+.?(\\d{1,2})*")) {
-                    // Alert user of syntax error
-                    JOptionPane.showMessageDialog(
-                            null,
-                            "Tips was not filled out properly! \nUse standard currency format, but you don't need to include the currency type (such as £).",
-                            "Syntax error",
-                            JOptionPane.ERROR_MESSAGE);
+                if (inputValue != null) {
+                    setTypedTips(inputValue);
                 } else {
                     // Alert if tips input cancelled
                     JOptionPane.showMessageDialog(
@@ -655,12 +916,41 @@ public class TipsForm implements ActionListener {
                             JOptionPane.ERROR_MESSAGE);
                 }
                 break;
+            case "TOGGLE_LIVE_TIPS":
+                if (liveTipSharesBox.isSelected()) {
+                    int[] monthRange = selectMonthRange();
+                    if (monthRange != null) {
+                        startLiveTipShares(monthRange[0], monthRange[1]);
+                    } else {
+                        liveTipSharesBox.setSelected(false);
+                    }
+                } else {
+                    // Keep the shares for the live range, split exactly
+                    employeeTableModel.getHistory().mark("Keep live tip shares");
+                    employeeTableModel.setLiveTipShares(null);
+                }
+                break;
             case "ADD_NEW_EMPLOYEE":
                 newEmployee();
                 break;
             case "CALCULATE_TIPS":
                 openMonthSelectDialog();
                 break;
+            case "CALCULATE_TIPS_FOR_DATES":
+                LocalDate[] dateRange = selectDateRange();
+                if (dateRange != null) {
+                    // Live shares follow a month range, so they're switched off to show the shares for these days
+                    if (liveTipSharesBox.isSelected()) {
+                        liveTipSharesBox.setSelected(false);
+                        employeeTableModel.getHistory().mark("Keep live tip shares");
+                        employeeTableModel.setLiveTipShares(null);
+                    }
+                    calculateHours(dateRange[0], dateRange[1]);
+                }
+                break;
+            case "ENTER_DAILY_HOURS":
+                enterDailyHours();
+                break;
             case "IMPORT_FILE":
                 importFile(true);
                 break;
@@ -670,17 +960,38 @@ public class TipsForm implements ActionListener {
             case "EXPORT_TABLE":
                 exportFile();
                 break;
+            case "BROWSE_SNAPSHOT":
+                browseSnapshot();
+                break;
             case "DELETE_ROW":
                 int selectedRow = employeeTable.getSelectedRow();
+                if (selectedRow < 0) {
+                    break;
+                }
                 int result = JOptionPane.showConfirmDialog(frame, "Are you sure you want to delete this row?");
                 if (result == JOptionPane.OK_OPTION) {
-                    employeeTableModel.removeRow(selectedRow);
+                    // The table may be sorted or searched, so the row shown is turned into the model's
+                    employeeTableModel.getHistory().mark("Delete row");
+                    employeeTableModel.removeRow(employeeTable.convertRowIndexToModel(selectedRow));
                 }
                 break;
             case "TEST_BTN":
                 seedTestData();
                 break;
+            case "UNDO":
+            case "REDO":
+                // A cell being edited may not be there once the table is put back
+                if (employeeTable.isEditing()) {
+                    employeeTable.getCellEditor().cancelCellEditing();
+                }
+                if (command.equals("UNDO")) {
+                    employeeTableModel.getHistory().undo();
+                } else {
+                    employeeTableModel.getHistory().redo();
+                }
+                break;
             default:
+                Metrics.count("command.unknown");
                 System.out.println("Unknown command");
                 break;
         }
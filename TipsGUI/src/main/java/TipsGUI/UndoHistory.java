@@ -0,0 +1,168 @@
+package TipsGUI;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Multi-level undo and redo for the employee table.
+ * Each step keeps a snapshot of the ledger from just before its changes, so undoing it puts the whole table back
+ * with a single restore. Snapshots share their pages with the table, so a step costs a few pointers per page plus
+ * a copy of each page written to since, however many employees there are; hundreds of steps of edits to a large
+ * roster take little more memory than the pages they touched.
+ *
+ * Changes are grouped into steps by calling mark just before making them, and everything changed until the next
+ * mark is undone together. A step in which nothing was changed is dropped.
+ *
+ * Must only be used on the event dispatch thread.
+ */
+public class UndoHistory {
+    public static final int MAX_STEPS = 200;
+
+    private static final class Step {
+        final String name;
+        final Ledger.Snapshot snapshot;
+
+        Step(String name, Ledger.Snapshot snapshot) {
+            this.name = name;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private final EmployeeTableModel model;
+    private final Deque<Step> undoSteps = new ArrayDeque<>();
+    private final Deque<Step> redoSteps = new ArrayDeque<>();
+    /** The ledger's change count after the last undo or redo; redo steps only apply while it hasn't moved on. */
+    private long restoredChangeCount = -1;
+    private final List<ChangeListener> listeners = new ArrayList<>();
+
+    /**
+     * @param model The table to keep the history of
+     */
+    public UndoHistory(EmployeeTableModel model) {
+        this.model = model;
+    }
+
+    /**
+     * Start a step, keeping the table as it is now so the changes made from now until the next mark can be undone.
+     * Making a change then drops anything there was to redo.
+     * @param name What the step does, e.g. "Delete row", to show on the undo and redo buttons
+     */
+    public void mark(String name) {
+        dropUnchanged();
+        if (!canRedo()) {
+            redoSteps.clear();
+        }
+        push(undoSteps, new Step(name, model.getLedger().snapshot()));
+        fireChanged();
+    }
+
+    /**
+     * @return True if there is a step to undo
+     */
+    public boolean canUndo() {
+        return !undoSteps.isEmpty();
+    }
+
+    /**
+     * @return True if there is an undone step to redo, and the table hasn't been changed since it was undone
+     */
+    public boolean canRedo() {
+        return !redoSteps.isEmpty() && model.getLedger().getChangeCount() == restoredChangeCount;
+    }
+
+    /**
+     * @return What the step undo would undo does, or null if there is none
+     */
+    public String getUndoName() {
+        return undoSteps.isEmpty() ? null : undoSteps.peekFirst().name;
+    }
+
+    /**
+     * @return What the step redo would redo does, or null if there is none
+     */
+    public String getRedoName() {
+        return canRedo() ? redoSteps.peekFirst().name : null;
+    }
+
+    /**
+     * Put the table back as it was before the last step, keeping the table as it is for redo.
+     */
+    public void undo() {
+        dropUnchanged();
+        if (undoSteps.isEmpty()) {
+            return;
+        }
+        if (!canRedo()) {
+            redoSteps.clear();
+        }
+        Step step = undoSteps.removeFirst();
+        push(redoSteps, new Step(step.name, model.getLedger().snapshot()));
+        restore(step);
+    }
+
+    /**
+     * Make the last step undone again.
+     */
+    public void redo() {
+        if (!canRedo()) {
+            redoSteps.clear();
+            fireChanged();
+            return;
+        }
+        Step step = redoSteps.removeFirst();
+        push(undoSteps, new Step(step.name, model.getLedger().snapshot()));
+        restore(step);
+    }
+
+    /**
+     * Undo the last step for good, e.g. an edit that was rejected, leaving nothing to redo.
+     */
+    public void revert() {
+        dropUnchanged();
+        redoSteps.clear();
+        if (undoSteps.isEmpty()) {
+            fireChanged();
+            return;
+        }
+        restore(undoSteps.removeFirst());
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    private void restore(Step step) {
+        model.restore(step.snapshot);
+        restoredChangeCount = model.getLedger().getChangeCount();
+        fireChanged();
+    }
+
+    /**
+     * Drop the newest step if nothing has been changed since it was marked.
+     */
+    private void dropUnchanged() {
+        Step last = undoSteps.peekFirst();
+        if (last != null && last.snapshot.getChangeCount() == model.getLedger().getChangeCount()) {
+            undoSteps.removeFirst();
+        }
+    }
+
+    private static void push(Deque<Step> steps, Step step) {
+        steps.addFirst(step);
+        if (steps.size() > MAX_STEPS) {
+            // The oldest snapshot goes, and with it any pages only it still shared
+            steps.removeLast();
+        }
+    }
+
+    private void fireChanged() {
+        ChangeEvent event = new ChangeEvent(this);
+        for (ChangeListener listener : listeners) {
+            listener.stateChanged(event);
+        }
+    }
+}